@@ -0,0 +1,187 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.model.*;
+import org.ligoj.app.resource.subscription.SubscriptionResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Load driver of the plugin against a {@link SonarStubServer}. The subscription status checks and the project searches
+ * are run at the target concurrency, then the latency percentiles and the outbound calls by API and status are logged.
+ * The node and its generated subscriptions are committed to be visible from the driver threads, then deleted at the
+ * end of the run. This driver is launched alone:
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=SonarLoadRunner -Dsonar.load.projects=10000 -Dsonar.load.concurrency=64
+ * </pre>
+ *
+ * Settings, as system properties:
+ * <ul>
+ * <li><code>sonar.load.projects</code>: projects of the catalog, default <code>1000</code>.</li>
+ * <li><code>sonar.load.subscriptions</code>: subscriptions to the projects of the catalog, default <code>100</code>.</li>
+ * <li><code>sonar.load.branches</code>: branches of each project, default <code>5</code>.</li>
+ * <li><code>sonar.load.latency</code>: minimal response time in milliseconds, default <code>20</code>.</li>
+ * <li><code>sonar.load.jitter</code>: random response time added in milliseconds, default <code>10</code>.</li>
+ * <li><code>sonar.load.errors</code>: rate of the <code>503</code> responses, default <code>0</code>.</li>
+ * <li><code>sonar.load.rate</code>: maximum requests per second before <code>429</code> responses, default
+ * <code>0</code>, unlimited.</li>
+ * <li><code>sonar.load.concurrency</code>: concurrent operations, default <code>32</code>.</li>
+ * <li><code>sonar.load.operations</code>: operations of each scenario, default <code>2000</code>.</li>
+ * </ul>
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+@Slf4j
+class SonarLoadRunner extends AbstractServerTest {
+
+	private static final String NODE = "service:qa:sonarqube:bpr";
+
+	@Autowired
+	private SonarPluginResource resource;
+
+	@Autowired
+	private SubscriptionResource subscriptionResource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final int projects = Integer.getInteger("sonar.load.projects", 1000);
+
+	private final int concurrency = Integer.getInteger("sonar.load.concurrency", 32);
+
+	private final int operations = Integer.getInteger("sonar.load.operations", 2000);
+
+	/**
+	 * The generated subscriptions.
+	 */
+	private final List<Integer> subscriptions = new ArrayList<>();
+
+	@BeforeEach
+	void prepareData() {
+		// Committed data, visible from the driver threads
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+			try {
+				persistEntities("csv", new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
+						StandardCharsets.UTF_8);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			final var node = em.find(Node.class, NODE);
+			final var project = em.createQuery("FROM Project WHERE name = 'Jupiter'", Project.class).getSingleResult();
+			final var parameter = em.find(Parameter.class, SonarPluginResource.PARAMETER_PROJECT);
+			for (var i = Integer.getInteger("sonar.load.subscriptions", 100); i-- > 0; ) {
+				final var subscription = new Subscription();
+				subscription.setNode(node);
+				subscription.setProject(project);
+				em.persist(subscription);
+				final var value = new ParameterValue();
+				value.setParameter(parameter);
+				value.setSubscription(subscription);
+				value.setData(SonarStubServer.getKey(ThreadLocalRandom.current().nextInt(projects)));
+				em.persist(value);
+				subscriptions.add(subscription.getId());
+			}
+		});
+	}
+
+	@AfterEach
+	void cleanData() {
+		// Delete the committed data, with the cached data, the measure history and the persisted catalog of the plugin
+		resource.evictCache(NODE);
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+			em.createQuery("SELECT id FROM Subscription", Integer.class).getResultList().forEach(id -> resource.delete(id, false));
+			resource.delete(NODE, false);
+			em.createQuery("DELETE FROM ParameterValue").executeUpdate();
+			em.createQuery("DELETE FROM Subscription").executeUpdate();
+			em.createQuery("DELETE FROM Project").executeUpdate();
+			em.createQuery("DELETE FROM Parameter").executeUpdate();
+
+			// The refined nodes first
+			em.createQuery("FROM Node", Node.class).getResultList().stream()
+					.sorted(Comparator.comparingInt((Node n) -> n.getId().length()).reversed()).forEach(em::remove);
+		});
+	}
+
+	@Test
+	void run() throws Exception {
+		final var settings = SonarStubServer.Settings.builder().port(MOCK_PORT).projects(projects)
+				.branches(Integer.getInteger("sonar.load.branches", 5))
+				.latency(Duration.ofMillis(Integer.getInteger("sonar.load.latency", 20)))
+				.jitter(Duration.ofMillis(Integer.getInteger("sonar.load.jitter", 10)))
+				.errors(Double.parseDouble(System.getProperty("sonar.load.errors", "0")))
+				.rateLimit(Integer.getInteger("sonar.load.rate", 0)).build();
+		try (var server = new SonarStubServer(settings)) {
+			resource.evictCache(NODE);
+			final var parameters = new HashMap<Integer, Map<String, String>>();
+			subscriptions.forEach(s -> parameters.put(s, subscriptionResource.getParametersNoCheck(s)));
+			run(server, "checkSubscriptionStatus", i -> {
+				final var subscription = subscriptions.get(ThreadLocalRandom.current().nextInt(subscriptions.size()));
+				try {
+					resource.checkSubscriptionStatus(subscription, NODE, parameters.get(subscription));
+				} catch (final Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			run(server, "findAllByName", i -> resource.findAllByName(NODE, "project " + ThreadLocalRandom.current().nextInt(projects)));
+		}
+	}
+
+	/**
+	 * Run an operation at the target concurrency, then log its latencies and the outbound calls.
+	 */
+	private void run(final SonarStubServer server, final String name, final IntConsumer operation) throws InterruptedException {
+		server.reset();
+		final var durations = new long[operations];
+		final var errors = new AtomicInteger();
+		final var start = System.nanoTime();
+		try (var executor = Executors.newFixedThreadPool(concurrency)) {
+			for (var i = 0; i < operations; i++) {
+				final var index = i;
+				executor.execute(() -> {
+					final var opStart = System.nanoTime();
+					try {
+						operation.accept(index);
+					} catch (final RuntimeException e) {
+						errors.incrementAndGet();
+					} finally {
+						durations[index] = System.nanoTime() - opStart;
+					}
+				});
+			}
+		}
+		final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+		Arrays.sort(durations);
+		log.info("{}: {} operations, {} errors, concurrency {}, {} ops/s", name, operations, errors.get(), concurrency,
+				String.format("%.1f", operations * 1000d / Math.max(1, elapsed.toMillis())));
+		log.info("{} latency ms: p50={} p90={} p99={} max={}", name, percentile(durations, 0.5), percentile(durations, 0.9),
+				percentile(durations, 0.99), percentile(durations, 1));
+		final var calls = server.getCalls();
+		final var total = calls.values().stream().mapToLong(Long::longValue).sum();
+		log.info("{} outbound calls: {}, {} per operation {}", name, total, String.format("%.2f", total / (double) operations), calls);
+	}
+
+	private static String percentile(final long[] sorted, final double rank) {
+		return String.format("%.1f", sorted[Math.min(sorted.length - 1, (int) Math.ceil(rank * sorted.length) - 1)] / 1e6);
+	}
+}
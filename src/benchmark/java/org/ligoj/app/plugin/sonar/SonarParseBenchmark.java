@@ -0,0 +1,113 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Benchmark of the JSON parsing of the projects and the branches, of the measure mapping and of the streaming branch
+ * selection, compared with the whole branch list parsing. The payloads are the mock-server fixtures, with their arrays
+ * scaled up. Run with <code>-prof gc</code> to get the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SonarParseBenchmark {
+
+	/**
+	 * Count of copies of each measure and branch of the fixtures.
+	 */
+	@Param({ "1", "20", "200" })
+	public int scale;
+
+	private ObjectReader projectReader;
+
+	private ObjectReader branchesReader;
+
+	private ObjectReader branchReader;
+
+	private String projectAsJson;
+
+	private String branchesAsJson;
+
+	private SonarProject project;
+
+	@Setup
+	public void setup() throws IOException {
+		final var mapper = new ObjectMapperTrim();
+		projectReader = mapper.readerFor(SonarProject.class);
+		branchesReader = mapper.readerFor(new TypeReference<List<SonarBranch>>() {
+			// Nothing to override
+		});
+		branchReader = mapper.readerFor(SonarBranch.class);
+		projectAsJson = scale(mapper, "sonar-resource-16010_6.3.json", "/component/measures",
+				(m, i) -> m.put("metric", m.path("metric").asString() + "_" + i));
+		branchesAsJson = scale(mapper, "sonar-branches.json", "/branches", (b, i) -> {
+			b.put("name", b.path("name").asString() + "_" + i);
+			b.put("isMain", b.path("isMain").asBoolean() && i == 0);
+			b.put("analysisDate", String.format("2023-08-%02dT%s", 1 + i % 28, b.path("analysisDate").asString().substring(11)));
+		});
+		project = SonarPluginResource.readFirst(projectAsJson, projectReader);
+	}
+
+	/**
+	 * Return the fixture with each item of the given array copied {@link #scale} times.
+	 */
+	private String scale(final ObjectMapper mapper, final String fixture, final String array, final BiConsumer<ObjectNode, Integer> rename)
+			throws IOException {
+		final JsonNode root;
+		try (var input = new ClassPathResource("mock-server/sonar/" + fixture).getInputStream()) {
+			root = mapper.readTree(input);
+		}
+		final var items = (ArrayNode) root.at(array);
+		final var originals = items.deepCopy();
+		items.removeAll();
+		for (var i = 0; i < scale; i++) {
+			for (final var original : originals) {
+				final var copy = (ObjectNode) original.deepCopy();
+				rename.accept(copy, i);
+				items.add(copy);
+			}
+		}
+		return mapper.writeValueAsString(root);
+	}
+
+	@Benchmark
+	public SonarProject readProject() {
+		return SonarPluginResource.readFirst(projectAsJson, projectReader);
+	}
+
+	@Benchmark
+	public List<SonarBranch> readBranches() {
+		return SonarPluginResource.readFirst(branchesAsJson, branchesReader);
+	}
+
+	@Benchmark
+	public SonarMeasures sanitizeMeasures() {
+		return SonarPluginResource.sanitizeMeasures(project);
+	}
+
+	@Benchmark
+	public List<SonarBranch> selectBranches() {
+		final var selector = new SonarBranchSelector(SonarPluginResource.DEFAULT_MAX_BRANCHES, List.of());
+		SonarPluginResource.readComponents(branchesAsJson, "branches", branchReader, selector::offer);
+		return selector.getBranches();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.ligoj.app.resource.NormalizeFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the project search of {@link SonarPluginResource#findAllByName(String, String)} in the catalog of a
+ * node: the trigram index lookup, and the update of a project by a delta synchronization, analyzed or renamed. The
+ * updates do not grow the catalog: an analyzed project is updated in place, and the index is compacted after the
+ * renames. The criteria is either frequent, keeping the first {@value SonarPluginResource#SEARCH_MAX_RESULTS} matches,
+ * either rare. Run with <code>-prof gc</code> to get the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SonarSearchBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int projects;
+
+	@Param({ "project", "project77777" })
+	public String criteria;
+
+	private final SonarCatalog catalog = new SonarCatalog();
+
+	private String formatCriteria;
+
+	private int updated;
+
+	private int renamed;
+
+	private static SonarProject newProject(final int index, final String date) {
+		final var project = new SonarProject();
+		project.setKey("fr.company" + index % 100 + ":project" + index);
+		project.setName("Company" + index % 100 + " - Project" + index);
+		project.setLastAnalysisDate(date);
+		return project;
+	}
+
+	@Setup
+	public void setup() {
+		for (var i = 0; i < projects; i++) {
+			catalog.put(newProject(i, "2023-08-08T16:12:31+0000"));
+		}
+		formatCriteria = new NormalizeFormat().format(criteria);
+	}
+
+	@Benchmark
+	public List<SonarProject> search() {
+		return catalog.search(formatCriteria, SonarPluginResource.SEARCH_MAX_RESULTS);
+	}
+
+	@Benchmark
+	public boolean update() {
+		// A newly analyzed project, as read by a delta synchronization
+		updated = (updated + 1) % projects;
+		return catalog.put(newProject(updated, updated % 2 == 0 ? "2023-08-09T16:12:31+0000" : "2023-08-10T16:12:31+0000"));
+	}
+
+	@Benchmark
+	public boolean rename() {
+		// A renamed project, reindexed. Each pass over the projects renames them back.
+		renamed = (renamed + 1) % (2 * projects);
+		final var project = newProject(renamed % projects, "2023-08-08T16:12:31+0000");
+		project.setName(project.getName() + (renamed < projects ? " - Renamed" : ""));
+		return catalog.put(project);
+	}
+}
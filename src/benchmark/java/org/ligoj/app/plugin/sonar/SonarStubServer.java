@@ -0,0 +1,378 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.hc.core5.http.HttpStatus;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local SonarQube stand-in serving a synthetic catalog of projects and branches, with injectable latency, errors and
+ * rate limit. Served APIs: <code>api/server/version</code>, <code>api/authentication/validate</code>,
+ * <code>api/projects/search</code>, <code>api/components/search_projects</code>, <code>api/measures/component</code>,
+ * <code>api/measures/search</code>, <code>api/project_branches/list</code> and <code>api/qualitygates/project_status</code>. The project <code>i</code> has the key <code>load:project{i}</code>.
+ */
+public class SonarStubServer implements AutoCloseable {
+
+	/**
+	 * Stand-in settings.
+	 */
+	@Getter
+	@Builder
+	public static class Settings {
+
+		/**
+		 * HTTP port.
+		 */
+		@Builder.Default
+		private final int port = 8120;
+
+		/**
+		 * Served SonarQube version.
+		 */
+		@Builder.Default
+		private final String version = "9.9.3";
+
+		/**
+		 * Count of projects of the catalog.
+		 */
+		@Builder.Default
+		private final int projects = 1000;
+
+		/**
+		 * Count of branches of each project, the main one included.
+		 */
+		@Builder.Default
+		private final int branches = 5;
+
+		/**
+		 * Minimal latency of each response.
+		 */
+		@Builder.Default
+		private final Duration latency = Duration.ofMillis(20);
+
+		/**
+		 * Random latency added to the minimal one, up to this value.
+		 */
+		@Builder.Default
+		private final Duration jitter = Duration.ofMillis(10);
+
+		/**
+		 * Rate of the responses failing with a <code>503</code> status, from <code>0</code> to <code>1</code>.
+		 */
+		@Builder.Default
+		private final double errors = 0;
+
+		/**
+		 * Maximum requests per second, the other ones fail with a <code>429</code> status. <code>0</code> disables the
+		 * limit.
+		 */
+		@Builder.Default
+		private final int rateLimit = 0;
+	}
+
+	private static final String KEY_PREFIX = "load:project";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Settings settings;
+
+	private final HttpServer server;
+
+	/**
+	 * Served calls by API and status.
+	 */
+	private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+	private final AtomicLong window = new AtomicLong();
+
+	private final AtomicInteger windowCalls = new AtomicInteger();
+
+	/**
+	 * Start a stand-in with the given settings.
+	 *
+	 * @param settings The stand-in settings.
+	 * @throws IOException When the port cannot be bound.
+	 */
+	public SonarStubServer(final Settings settings) throws IOException {
+		this.settings = settings;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", settings.getPort()), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * Return the key of a project of the catalog.
+	 *
+	 * @param index The project index.
+	 * @return The project key.
+	 */
+	public static String getKey(final int index) {
+		return KEY_PREFIX + index;
+	}
+
+	/**
+	 * Return the base URL of this stand-in.
+	 *
+	 * @return The base URL.
+	 */
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * Return the served calls by API and status, such as <code>measures 200</code>.
+	 *
+	 * @return The served calls, ordered by API and status.
+	 */
+	public Map<String, Long> getCalls() {
+		final var result = new TreeMap<String, Long>();
+		calls.forEach((k, v) -> result.put(k, v.sum()));
+		return result;
+	}
+
+	/**
+	 * Reset the served calls counters.
+	 */
+	public void reset() {
+		calls.clear();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		final var path = exchange.getRequestURI().getPath();
+		final var query = getQuery(exchange.getRequestURI().getRawQuery());
+		final var api = SonarMetrics.getApi(StringUtils.removeStart(path, "/"));
+		try (exchange) {
+			sleep();
+			int status;
+			String body = null;
+			if (isRateLimited()) {
+				status = HttpStatus.SC_TOO_MANY_REQUESTS;
+			} else if (settings.getErrors() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getErrors()) {
+				status = HttpStatus.SC_SERVICE_UNAVAILABLE;
+			} else {
+				body = getBody(path, query);
+				status = body == null ? HttpStatus.SC_NOT_FOUND : HttpStatus.SC_OK;
+			}
+			calls.computeIfAbsent(api + " " + status, k -> new LongAdder()).increment();
+			final var bytes = StringUtils.defaultString(body).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+			if (bytes.length > 0) {
+				exchange.getResponseBody().write(bytes);
+			}
+		}
+	}
+
+	private String getBody(final String path, final Map<String, String> query) {
+		return switch (path) {
+			case "/api/server/version" -> settings.getVersion();
+			case "/sessions/new" -> "";
+			case "/api/authentication/validate" -> "{\"valid\":true}";
+			case "/api/projects/search" -> searchProjects(query);
+			case "/api/components/search_projects" -> searchProjectsByDate(query);
+			case "/api/measures/component" -> getComponent(query);
+			case "/api/measures/search" -> searchMeasures(query);
+			case "/api/project_branches/list" -> getBranches(query);
+			case "/api/qualitygates/project_status" -> getQualityGate(query);
+			default -> null;
+		};
+	}
+
+	private boolean isRateLimited() {
+		if (settings.getRateLimit() <= 0) {
+			return false;
+		}
+		final var second = System.currentTimeMillis() / 1000;
+		final var current = window.get();
+		if (current != second && window.compareAndSet(current, second)) {
+			windowCalls.set(0);
+		}
+		return windowCalls.incrementAndGet() > settings.getRateLimit();
+	}
+
+	private void sleep() {
+		final var jitter = settings.getJitter().toMillis();
+		final var delay = settings.getLatency().toMillis() + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Return the analysis date of a project, the projects being analyzed on 28 distinct days.
+	 */
+	private static String getAnalysisDate(final int index) {
+		return String.format("2024-02-%02dT10:00:00+0000", 1 + index % 28);
+	}
+
+	private String searchProjects(final Map<String, String> query) {
+		final var criteria = StringUtils.lowerCase(query.getOrDefault("q", ""));
+		final var size = NumberUtils.toInt(query.get("ps"), 100);
+		final var page = NumberUtils.toInt(query.get("p"), 1);
+		final var root = mapper.createObjectNode();
+		final var components = root.putArray("components");
+		var total = 0;
+		for (var i = 0; i < settings.getProjects() && !"true".equals(query.get("onProvisionedOnly")); i++) {
+			final var key = getKey(i);
+			final var name = getName(i);
+			if (key.contains(criteria) || name.toLowerCase(Locale.ROOT).contains(criteria)) {
+				if (total >= (page - 1) * size && total < page * size) {
+					components.addObject().put("key", key).put("name", name).put("qualifier", "TRK").put("lastAnalysisDate", getAnalysisDate(i));
+				}
+				total++;
+			}
+		}
+		root.putObject("paging").put("pageIndex", page).put("pageSize", size).put("total", total);
+		return mapper.writeValueAsString(root);
+	}
+
+	private String searchProjectsByDate(final Map<String, String> query) {
+		final var size = NumberUtils.toInt(query.get("ps"), 100);
+		final var page = NumberUtils.toInt(query.get("p"), 1);
+		final var root = mapper.createObjectNode();
+		final var components = root.putArray("components");
+		var total = 0;
+
+		// The most recently analyzed projects first
+		for (var day = 27; day >= 0; day--) {
+			for (var i = day; i < settings.getProjects(); i += 28) {
+				if (total >= (page - 1) * size && total < page * size) {
+					components.addObject().put("key", getKey(i)).put("name", getName(i)).put("analysisDate", getAnalysisDate(i));
+				}
+				total++;
+			}
+		}
+		root.putObject("paging").put("pageIndex", page).put("pageSize", size).put("total", total);
+		return mapper.writeValueAsString(root);
+	}
+
+	private String getComponent(final Map<String, String> query) {
+		final var index = getIndex(query.get("component"));
+		final var branch = query.get("branch");
+		if (index < 0 || branch != null && getBranchIndex(branch) >= settings.getBranches()) {
+			return null;
+		}
+		final var root = mapper.createObjectNode();
+		final var component = root.putObject("component").put("key", getKey(index)).put("name", getName(index)).put("qualifier", "TRK");
+		addMeasures(component.putArray("measures"), getKey(index) + StringUtils.defaultString(branch), query.get("metricKeys"), null);
+		return mapper.writeValueAsString(root);
+	}
+
+	private String searchMeasures(final Map<String, String> query) {
+		final var root = mapper.createObjectNode();
+		final var measures = root.putArray("measures");
+		Arrays.stream(StringUtils.split(query.getOrDefault("projectKeys", ""), ',')).filter(k -> getIndex(k) >= 0)
+				.forEach(k -> addMeasures(measures, k, query.get("metricKeys"), k));
+		return mapper.writeValueAsString(root);
+	}
+
+	private String getBranches(final Map<String, String> query) {
+		final var index = getIndex(query.get("project"));
+		if (index < 0) {
+			return null;
+		}
+		final var root = mapper.createObjectNode();
+		final var branches = root.putArray("branches");
+		for (var b = 0; b < settings.getBranches(); b++) {
+			final var name = b == 0 ? "main" : "feature/" + b;
+			final var branch = branches.addObject().put("name", name).put("isMain", b == 0).put("type", "BRANCH")
+					.put("analysisDate", String.format("2024-01-%02dT10:00:00+0000", 1 + (index + b) % 28));
+			final ObjectNode status = branch.putObject("status");
+			final var seed = getKey(index) + (b == 0 ? "" : name);
+			status.put("qualityGateStatus", getValue(seed, "alert_status") > 50 ? "OK" : "ERROR");
+			status.put("bugs", (int) getValue(seed, "bugs")).put("vulnerabilities", (int) getValue(seed, "vulnerabilities"))
+					.put("codeSmells", (int) getValue(seed, "code_smells"));
+		}
+		return mapper.writeValueAsString(root);
+	}
+
+	private String getQualityGate(final Map<String, String> query) {
+		final var index = getIndex(query.get("projectKey"));
+		if (index < 0) {
+			return null;
+		}
+		final var branch = StringUtils.defaultString(query.get("branch"));
+		final var seed = getKey(index) + ("main".equals(branch) ? "" : branch);
+		final var coverage = getValue(seed, "coverage");
+		final var root = mapper.createObjectNode();
+		final var status = root.putObject("projectStatus").put("status", getValue(seed, "alert_status") > 50 ? "OK" : "ERROR");
+		status.putArray("conditions").addObject().put("status", coverage < 80 ? "ERROR" : "OK").put("metricKey", "new_coverage")
+				.put("comparator", "LT").put("errorThreshold", "80").put("actualValue", String.valueOf(coverage));
+		return mapper.writeValueAsString(root);
+	}
+
+	private void addMeasures(final ArrayNode measures, final String seed, final String metrics, final String component) {
+		for (final var metric : StringUtils.split(StringUtils.defaultString(metrics), ',')) {
+			final var measure = measures.addObject().put("metric", metric);
+			if ("alert_status".equals(metric)) {
+				measure.put("value", getValue(seed, metric) > 50 ? "OK" : "ERROR");
+			} else {
+				measure.put("value", String.valueOf(getValue(seed, metric)));
+			}
+			if (component != null) {
+				measure.put("component", component);
+			}
+		}
+	}
+
+	/**
+	 * Return a stable measure value from 0 to 100.
+	 */
+	private static double getValue(final String seed, final String metric) {
+		return Math.floorMod((seed + metric).hashCode(), 1000) / 10d;
+	}
+
+	private static String getName(final int index) {
+		return "Load Project " + index;
+	}
+
+	private int getIndex(final String key) {
+		final var index = StringUtils.startsWith(key, KEY_PREFIX) ? NumberUtils.toInt(key.substring(KEY_PREFIX.length()), -1) : -1;
+		return index < settings.getProjects() ? index : -1;
+	}
+
+	private static int getBranchIndex(final String branch) {
+		return "main".equals(branch) ? 0 : NumberUtils.toInt(StringUtils.substringAfter(branch, "feature/"), Integer.MAX_VALUE);
+	}
+
+	private static Map<String, String> getQuery(final String rawQuery) {
+		final var result = new HashMap<String, String>();
+		for (final var pair : StringUtils.split(StringUtils.defaultString(rawQuery), '&')) {
+			result.put(URLDecoder.decode(StringUtils.substringBefore(pair, "="), StandardCharsets.UTF_8),
+					URLDecoder.decode(StringUtils.substringAfter(pair, "="), StandardCharsets.UTF_8));
+		}
+		return result;
+	}
+}
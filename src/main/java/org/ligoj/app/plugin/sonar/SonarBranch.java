@@ -3,6 +3,7 @@
  */
 package org.ligoj.app.plugin.sonar;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
@@ -30,4 +31,11 @@ public class SonarBranch extends SonarProject {
 	private String targetBranchName;
 	private String analysisDate;
 	private Map<String, String> status;
+
+	/**
+	 * When <code>true</code>, all the measures and the quality gate of this branch have been retrieved, and this state
+	 * can be reused until the next analysis of this branch.
+	 */
+	@JsonIgnore
+	private boolean complete;
 }
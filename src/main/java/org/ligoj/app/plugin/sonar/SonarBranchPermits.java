@@ -0,0 +1,89 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.Getter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded concurrency of the branch measures requests of a node. A task cancelled at the deadline can give back its
+ * permit right away, even while it is still blocked in a request, so the next refreshes of this node are not starved by
+ * the abandoned requests.
+ */
+public class SonarBranchPermits {
+
+	/**
+	 * The maximum concurrent tasks.
+	 */
+	@Getter
+	private final int size;
+
+	private final Semaphore semaphore;
+
+	/**
+	 * A task running with a permit.
+	 */
+	public class Task implements Callable<Boolean> {
+
+		private final Callable<Boolean> task;
+
+		private final AtomicBoolean held = new AtomicBoolean();
+
+		private Task(final Callable<Boolean> task) {
+			this.task = task;
+		}
+
+		@Override
+		public Boolean call() throws Exception {
+			semaphore.acquire();
+			held.set(true);
+			try {
+				return task.call();
+			} finally {
+				release();
+			}
+		}
+
+		/**
+		 * Give back the permit of this task, only once and only when it is held.
+		 */
+		public void release() {
+			if (held.compareAndSet(true, false)) {
+				semaphore.release();
+			}
+		}
+	}
+
+	/**
+	 * Build the permits.
+	 *
+	 * @param size The maximum concurrent tasks. At least <code>1</code>.
+	 */
+	public SonarBranchPermits(final int size) {
+		this.size = Math.max(1, size);
+		this.semaphore = new Semaphore(this.size);
+	}
+
+	/**
+	 * Wrap a task to run it with a permit.
+	 *
+	 * @param task The task to wrap.
+	 * @return The task running with a permit.
+	 */
+	public Task wrap(final Callable<Boolean> task) {
+		return new Task(task);
+	}
+
+	/**
+	 * Return the available permits.
+	 *
+	 * @return The available permits.
+	 */
+	public int getAvailable() {
+		return semaphore.availablePermits();
+	}
+}
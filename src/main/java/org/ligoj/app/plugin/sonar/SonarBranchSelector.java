@@ -0,0 +1,109 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Streaming selection of the most active branches of a project: the main branch, then the most recently analyzed
+ * ones. Only the selected branches are kept in a bounded heap, and the analysis date of each branch is parsed once.
+ * The equally recent branches are kept in their streamed order.
+ */
+public class SonarBranchSelector {
+
+	/**
+	 * Date format of the SonarQube analysis dates, such as <code>2023-08-08T16:12:31+0000</code>.
+	 */
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+	/**
+	 * A selected branch with its activity.
+	 *
+	 * @param branch The branch.
+	 * @param time   The activity: the analysis date in epoch milliseconds, {@link Long#MAX_VALUE} for the main branch.
+	 * @param order  The streamed order of this branch.
+	 */
+	private record Candidate(SonarBranch branch, long time, int order) {
+	}
+
+	/**
+	 * The least active candidate first, then the last streamed one.
+	 */
+	private static final Comparator<Candidate> LEAST_ACTIVE = Comparator.comparingLong(Candidate::time)
+			.thenComparing(Comparator.comparingInt(Candidate::order).reversed());
+
+	private final int limit;
+
+	private final Set<String> types;
+
+	private final PriorityQueue<Candidate> heap;
+
+	private int order;
+
+	/**
+	 * Build a selector.
+	 *
+	 * @param limit The maximum selected branches, the main one included.
+	 * @param types The accepted branch types, such as <code>BRANCH</code> or <code>PULL_REQUEST</code>. The main branch
+	 *              is always accepted. When empty, all types are accepted.
+	 */
+	public SonarBranchSelector(final int limit, final Collection<String> types) {
+		this.limit = Math.max(0, limit);
+		this.types = Set.copyOf(types);
+		this.heap = new PriorityQueue<>(Math.max(1, this.limit + 1), LEAST_ACTIVE);
+	}
+
+	/**
+	 * Offer a streamed branch. The branch is ignored when it is not accepted, or when it cannot be more active than the
+	 * selected ones.
+	 *
+	 * @param branch The streamed branch.
+	 * @return Always <code>true</code> to continue the stream.
+	 */
+	public boolean offer(final SonarBranch branch) {
+		if (limit == 0 || !branch.isMain() && !types.isEmpty() && !types.contains(branch.getType())) {
+			return true;
+		}
+		final var time = branch.isMain() ? Long.MAX_VALUE : toTime(branch.getAnalysisDate());
+		if (heap.size() == limit && heap.peek().time() >= time) {
+			// Cannot make the cut
+			order++;
+			return true;
+		}
+		heap.add(new Candidate(branch, time, order++));
+		if (heap.size() > limit) {
+			heap.poll();
+		}
+		return true;
+	}
+
+	/**
+	 * Return the selected branches, the most active first.
+	 *
+	 * @return The selected branches.
+	 */
+	public List<SonarBranch> getBranches() {
+		return heap.stream().sorted(LEAST_ACTIVE.reversed()).map(Candidate::branch).toList();
+	}
+
+	/**
+	 * Return the epoch milliseconds of a SonarQube date.
+	 *
+	 * @param date The SonarQube date. May be <code>null</code>.
+	 * @return The epoch milliseconds, {@link Long#MIN_VALUE} when the date is <code>null</code> or invalid.
+	 */
+	public static long toTime(final String date) {
+		if (date == null) {
+			return Long.MIN_VALUE;
+		}
+		try {
+			return OffsetDateTime.parse(date, DATE_FORMAT).toInstant().toEpochMilli();
+		} catch (final DateTimeParseException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Simple in-memory cache where each entry expires after a time-to-live. <code>null</code> values are never cached.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class SonarCache<K, V> {
+
+	/**
+	 * Cached value and its expiration date in milliseconds.
+	 */
+	private record Entry<V>(V value, long expire) {
+
+		private boolean isExpired(final long now) {
+			return now >= expire;
+		}
+	}
+
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the cached value of the given key, or load and cache it when missing or expired.
+	 *
+	 * @param key    The cache key.
+	 * @param ttl    The time-to-live of a newly loaded value.
+	 * @param loader The function loading the value. May return <code>null</code>, and then nothing is cached.
+	 * @return The cached or loaded value. May be <code>null</code>.
+	 */
+	public V get(final K key, final Duration ttl, final Function<K, V> loader) {
+		final var entry = entries.get(key);
+		if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+			return entry.value();
+		}
+		final var value = loader.apply(key);
+		put(key, value, ttl);
+		return value;
+	}
+
+	/**
+	 * Return the cached value of the given key.
+	 *
+	 * @param key The cache key.
+	 * @return The cached value, or <code>null</code> when missing or expired.
+	 */
+	public V getIfPresent(final K key) {
+		final var entry = entries.get(key);
+		if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+			return null;
+		}
+		return entry.value();
+	}
+
+	/**
+	 * Cache a value.
+	 *
+	 * @param key   The cache key.
+	 * @param value The value to cache. When <code>null</code>, the previous value is evicted.
+	 * @param ttl   The time-to-live of this value.
+	 */
+	public void put(final K key, final V value, final Duration ttl) {
+		if (value == null) {
+			entries.remove(key);
+		} else {
+			entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttl.toMillis()));
+		}
+	}
+
+	/**
+	 * Evict the given key.
+	 *
+	 * @param key The cache key.
+	 */
+	public void evict(final K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Evict all keys matching the given predicate.
+	 *
+	 * @param predicate The key predicate.
+	 */
+	public void evictIf(final Predicate<K> predicate) {
+		entries.keySet().removeIf(predicate);
+	}
+
+	/**
+	 * Evict all entries.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.ligoj.app.resource.NormalizeFormat;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Catalog of the projects of a node: their keys, names and last analysis dates. The projects are indexed for the
+ * searches, and the catalog is updated incrementally by the synchronizations.
+ */
+public class SonarCatalog {
+
+	/**
+	 * Projects by key.
+	 */
+	private final Map<String, SonarProject> projects = new HashMap<>();
+
+	/**
+	 * Index of the projects.
+	 */
+	private final SonarProjectIndex index = new SonarProjectIndex(List.of());
+
+	/**
+	 * Most recent analysis date of the projects, in epoch milliseconds.
+	 */
+	private long watermark = Long.MIN_VALUE;
+
+	/**
+	 * Date of the last synchronization in milliseconds, <code>0</code> when never synchronized.
+	 */
+	@Getter
+	@Setter
+	private volatile long synchronizedAt;
+
+	/**
+	 * Date of the last full synchronization in milliseconds, <code>0</code> when never fully synchronized.
+	 */
+	@Getter
+	@Setter
+	private volatile long fullSynchronizedAt;
+
+	/**
+	 * Last started synchronization, <code>null</code> when never synchronized.
+	 */
+	private CompletableFuture<Void> synchronization;
+
+	private static String getKey(final SonarProject project) {
+		return Objects.requireNonNullElse(project.getKey(), project.getId());
+	}
+
+	/**
+	 * Add or replace a project. Only the catalog properties of the given project are kept.
+	 *
+	 * @param project The project to add.
+	 * @return <code>true</code> when the project is new or updated.
+	 */
+	public synchronized boolean put(final SonarProject project) {
+		final var key = getKey(project);
+		final var previous = projects.get(key);
+		if (previous != null && Objects.equals(previous.getName(), project.getName())
+				&& Objects.equals(previous.getDescription(), project.getDescription())
+				&& Objects.equals(previous.getLastAnalysisDate(), project.getLastAnalysisDate())) {
+			// Unchanged project
+			return false;
+		}
+		watermark = Math.max(watermark, SonarBranchSelector.toTime(project.getLastAnalysisDate()));
+		if (previous != null && Objects.equals(previous.getName(), project.getName())) {
+			// The indexed name and key are unchanged, the entry is updated in place
+			previous.setDescription(project.getDescription());
+			previous.setLastAnalysisDate(project.getLastAnalysisDate());
+			return true;
+		}
+		final var entry = new SonarProject();
+		entry.setId(Objects.requireNonNullElse(project.getId(), key));
+		entry.setKey(key);
+		entry.setName(project.getName());
+		entry.setDescription(project.getDescription());
+		entry.setLastAnalysisDate(project.getLastAnalysisDate());
+		projects.put(key, entry);
+		final var format = new NormalizeFormat();
+		index.add(new SonarSearchEntry(entry, format.format(Objects.toString(entry.getName(), "")), format.format(key)));
+		return true;
+	}
+
+	/**
+	 * Remove a project.
+	 *
+	 * @param key The project key.
+	 */
+	public synchronized void remove(final String key) {
+		projects.remove(key);
+		index.remove(key);
+	}
+
+	/**
+	 * Return a project.
+	 *
+	 * @param key The project key.
+	 * @return The project, or <code>null</code> when not in this catalog.
+	 */
+	public synchronized SonarProject get(final String key) {
+		return projects.get(key);
+	}
+
+	/**
+	 * Return the project keys.
+	 *
+	 * @return A copy of the project keys.
+	 */
+	public synchronized Set<String> getKeys() {
+		return new HashSet<>(projects.keySet());
+	}
+
+	/**
+	 * Return the projects, ordered by key.
+	 *
+	 * @return A copy of the projects.
+	 */
+	public synchronized List<SonarProject> getProjects() {
+		return projects.values().stream().sorted(Comparator.comparing(SonarProject::getKey)).toList();
+	}
+
+	/**
+	 * Return the projects count.
+	 *
+	 * @return The projects count.
+	 */
+	public synchronized int size() {
+		return projects.size();
+	}
+
+	/**
+	 * Return the most recent analysis date of the projects.
+	 *
+	 * @return The most recent analysis date in epoch milliseconds, {@link Long#MIN_VALUE} when no project is analyzed.
+	 */
+	public synchronized long getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * Start a synchronization of this catalog, unless one is already running. The lock of this catalog is not held
+	 * during the synchronization, so the searches are served meanwhile.
+	 *
+	 * @param task     The synchronization.
+	 * @param executor The executor running the synchronization. May be the calling thread.
+	 * @return The running synchronization, completed exceptionally when it has failed.
+	 */
+	public CompletableFuture<Void> synchronize(final Runnable task, final Executor executor) {
+		final var result = new CompletableFuture<Void>();
+		synchronized (this) {
+			if (synchronization != null && !synchronization.isDone()) {
+				// Already running
+				return synchronization;
+			}
+			synchronization = result;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					task.run();
+					result.complete(null);
+				} catch (final RuntimeException | Error e) {
+					result.completeExceptionally(e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the best projects matching to the given criteria.
+	 *
+	 * @param criteria The normalized criteria.
+	 * @param limit    The maximum returned projects.
+	 * @return The best matching projects, ordered by {@link SonarProjectIndex#ranking(String)}.
+	 */
+	public List<SonarProject> search(final String criteria, final int limit) {
+		return index.search(criteria, limit).stream().map(SonarSearchEntry::getProject).toList();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.transaction.Transactional;
+import org.ligoj.app.dao.NodeRepository;
+import org.ligoj.app.plugin.sonar.dao.SonarCatalogProjectRepository;
+import org.ligoj.app.plugin.sonar.model.SonarCatalogProject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persisted project catalogs of the nodes. Only the changes of each synchronization are written.
+ */
+@Service
+@Transactional
+public class SonarCatalogStore {
+
+	/**
+	 * Maximum project keys of a query.
+	 */
+	private static final int KEYS_CHUNK = 500;
+
+	@Autowired
+	private SonarCatalogProjectRepository repository;
+
+	@Autowired
+	private NodeRepository nodeRepository;
+
+	/**
+	 * Return the persisted catalog projects of a node.
+	 *
+	 * @param node The node identifier.
+	 * @return The persisted projects. May be empty.
+	 */
+	public List<SonarProject> load(final String node) {
+		return repository.findAllByNode(node).stream().map(e -> {
+			final var project = new SonarProject();
+			project.setId(e.getProjectId());
+			project.setKey(e.getProjectKey());
+			project.setName(e.getName());
+			project.setDescription(e.getDescription());
+			project.setLastAnalysisDate(e.getLastAnalysisDate());
+			return project;
+		}).toList();
+	}
+
+	/**
+	 * Persist the changes of a catalog.
+	 *
+	 * @param node    The node identifier.
+	 * @param changed The new or updated projects.
+	 * @param removed The keys of the removed projects.
+	 */
+	public void save(final String node, final Collection<SonarProject> changed, final Collection<String> removed) {
+		final var keys = List.copyOf(removed);
+		for (var i = 0; i < keys.size(); i += KEYS_CHUNK) {
+			repository.deleteAllByNode(node, keys.subList(i, Math.min(keys.size(), i + KEYS_CHUNK)));
+		}
+		final var projects = List.copyOf(changed);
+		for (var i = 0; i < projects.size(); i += KEYS_CHUNK) {
+			save(node, projects.subList(i, Math.min(projects.size(), i + KEYS_CHUNK)));
+		}
+	}
+
+	private void save(final String node, final List<SonarProject> changed) {
+		final var entity = nodeRepository.findOneExpected(node);
+		final var existing = repository.findAllByNode(node, changed.stream().map(SonarProject::getKey).toList()).stream()
+				.collect(Collectors.toMap(SonarCatalogProject::getProjectKey, Function.identity()));
+		repository.saveAll(changed.stream().map(p -> {
+			final var project = existing.computeIfAbsent(p.getKey(), k -> {
+				final var result = new SonarCatalogProject();
+				result.setNode(entity);
+				result.setProjectKey(k);
+				return result;
+			});
+			project.setProjectId(p.getId());
+			project.setName(p.getName());
+			project.setDescription(p.getDescription());
+			project.setLastAnalysisDate(p.getLastAnalysisDate());
+			return project;
+		}).toList());
+	}
+
+	/**
+	 * Delete the persisted catalog of a node.
+	 *
+	 * @param node The node identifier.
+	 */
+	public void delete(final String node) {
+		repository.deleteAllByNode(node);
+	}
+}
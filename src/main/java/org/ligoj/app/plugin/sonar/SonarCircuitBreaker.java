@@ -0,0 +1,261 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker and adaptive concurrency limiter of each node. After several consecutive failures, the circuit is
+ * open and the calls to this node are rejected right away. Once the open delay is elapsed, a single probe call is
+ * allowed: its success closes the circuit, its failure opens it again. In addition, the concurrent calls to a node are
+ * limited. The limit grows slowly while the node responds fast, and shrinks on overload signals: timeouts,
+ * <code>429</code> and <code>5xx</code> statuses. The slow responses shrink it too, but not below a quarter of the
+ * maximum concurrency, so a slow but healthy node still serves the ordinary concurrency. The calls beyond the limit wait
+ * for a permit during a bounded delay. The rejected calls fail with a {@link ServiceUnavailableException}, so the
+ * callers keep their cached data.
+ */
+@Slf4j
+public class SonarCircuitBreaker {
+
+	/**
+	 * Circuit state.
+	 */
+	public enum State {
+		/**
+		 * Calls allowed, within the concurrency limit.
+		 */
+		CLOSED,
+
+		/**
+		 * Calls rejected.
+		 */
+		OPEN,
+
+		/**
+		 * A single probe call allowed.
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * Limit ratio applied after an overload signal.
+	 */
+	private static final double BACKOFF = 0.5;
+
+	/**
+	 * Limit ratio applied after a slow response.
+	 */
+	private static final double LATENCY_BACKOFF = 0.9;
+
+	/**
+	 * Health of a node.
+	 */
+	private static class Node {
+		private State state = State.CLOSED;
+		private int failures;
+		private long openedAt;
+		private int inFlight;
+		private double limit;
+
+		private Node(final int limit) {
+			this.limit = limit;
+		}
+	}
+
+	private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+	private final int threshold;
+
+	private final Duration openDelay;
+
+	private final Duration latency;
+
+	private final int maxConcurrency;
+
+	/**
+	 * The lowest limit reached by the slow responses.
+	 */
+	private final int minConcurrency;
+
+	/**
+	 * The maximum delay a call waits for a permit.
+	 */
+	private final Duration queueTimeout;
+
+	/**
+	 * The current time in milliseconds.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threshold      The consecutive failures opening the circuit.
+	 * @param openDelay      The delay before a probe call is allowed on an open circuit.
+	 * @param latency        The response time above which the concurrency limit shrinks.
+	 * @param maxConcurrency The maximum concurrent calls to a node, and the initial limit.
+	 * @param queueTimeout   The maximum delay a call waits for a permit.
+	 */
+	public SonarCircuitBreaker(final int threshold, final Duration openDelay, final Duration latency, final int maxConcurrency,
+			final Duration queueTimeout) {
+		this(threshold, openDelay, latency, maxConcurrency, queueTimeout, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor with a given clock.
+	 *
+	 * @param threshold      The consecutive failures opening the circuit.
+	 * @param openDelay      The delay before a probe call is allowed on an open circuit.
+	 * @param latency        The response time above which the concurrency limit shrinks.
+	 * @param maxConcurrency The maximum concurrent calls to a node, and the initial limit.
+	 * @param queueTimeout   The maximum delay a call waits for a permit.
+	 * @param clock          The current time in milliseconds.
+	 */
+	SonarCircuitBreaker(final int threshold, final Duration openDelay, final Duration latency, final int maxConcurrency,
+			final Duration queueTimeout, final LongSupplier clock) {
+		this.threshold = Math.max(1, threshold);
+		this.openDelay = openDelay;
+		this.latency = latency;
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.minConcurrency = Math.min(this.maxConcurrency, Math.max(2, this.maxConcurrency / 4));
+		this.queueTimeout = queueTimeout;
+		this.clock = clock;
+	}
+
+	/**
+	 * Execute a call to a node when its circuit and its concurrency limit allow it. Beyond the limit, or while the node
+	 * is probed, the call waits for a permit.
+	 *
+	 * @param url    The node URL.
+	 * @param call   The call. Returns <code>true</code> when the response is accepted.
+	 * @param status The HTTP status of the completed call. <code>0</code> when there is no response.
+	 * @return The call result.
+	 * @throws ServiceUnavailableException When the call is rejected: open circuit, or no permit before the timeout.
+	 */
+	public boolean execute(final String url, final BooleanSupplier call, final IntSupplier status) {
+		final var node = nodes.computeIfAbsent(url, k -> new Node(maxConcurrency));
+		acquire(url, node);
+		final var start = clock.getAsLong();
+		var result = false;
+		try {
+			result = call.getAsBoolean();
+		} finally {
+			release(url, node, result, status.getAsInt(), clock.getAsLong() - start);
+		}
+		return result;
+	}
+
+	private void acquire(final String url, final Node node) {
+		synchronized (node) {
+			final var deadline = System.nanoTime() + queueTimeout.toNanos();
+			while (true) {
+				if (node.state == State.OPEN) {
+					final var remaining = node.openedAt + openDelay.toMillis() - clock.getAsLong();
+					if (remaining > 0) {
+						throw new ServiceUnavailableException("SonarQube node " + url + " is unavailable", Math.max(1, remaining / 1000));
+					}
+					// Let this call probe the node
+					node.state = State.HALF_OPEN;
+					break;
+				}
+				if (node.state == State.CLOSED && node.inFlight < (int) node.limit) {
+					break;
+				}
+
+				// Wait for the probe or for a permit
+				await(url, node, deadline);
+			}
+			node.inFlight++;
+		}
+	}
+
+	/**
+	 * Wait for a change of the node health, until the given deadline.
+	 */
+	private void await(final String url, final Node node, final long deadline) {
+		final var remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (remaining <= 0) {
+			throw new ServiceUnavailableException("SonarQube node " + url + (node.state == State.HALF_OPEN ? " is being probed" : " is overloaded"),
+					1L);
+		}
+		try {
+			node.wait(remaining);
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new ServiceUnavailableException("SonarQube node " + url + " call is interrupted", 1L);
+		}
+	}
+
+	private void release(final String url, final Node node, final boolean result, final int status, final long elapsed) {
+		synchronized (node) {
+			node.inFlight--;
+			node.notifyAll();
+			if (!result && (status == 0 || status == 429 || status >= 500)) {
+				// Overload signal
+				node.limit = Math.max(1, node.limit * BACKOFF);
+				node.failures++;
+				if (node.state == State.HALF_OPEN || node.failures >= threshold) {
+					if (node.state != State.OPEN) {
+						log.warn("Circuit of SonarQube node {} is open after {} failures, last status {}", url, node.failures, status);
+					}
+					node.state = State.OPEN;
+					node.openedAt = clock.getAsLong();
+				}
+				return;
+			}
+
+			// The node has responded
+			if (node.state == State.HALF_OPEN) {
+				log.info("Circuit of SonarQube node {} is closed", url);
+			}
+			node.state = State.CLOSED;
+			node.failures = 0;
+			if (elapsed > latency.toMillis()) {
+				node.limit = Math.max(Math.min(minConcurrency, node.limit), node.limit * LATENCY_BACKOFF);
+			} else {
+				node.limit = Math.min(maxConcurrency, node.limit + 1 / node.limit);
+			}
+		}
+	}
+
+	/**
+	 * Return the circuit state of a node.
+	 *
+	 * @param url The node URL.
+	 * @return The circuit state.
+	 */
+	public State getState(final String url) {
+		final var node = nodes.get(url);
+		return node == null ? State.CLOSED : node.state;
+	}
+
+	/**
+	 * Return the current concurrency limit of a node.
+	 *
+	 * @param url The node URL.
+	 * @return The concurrency limit.
+	 */
+	public int getLimit(final String url) {
+		final var node = nodes.get(url);
+		return node == null ? maxConcurrency : (int) node.limit;
+	}
+
+	/**
+	 * Reset the health of a node.
+	 *
+	 * @param url The node URL.
+	 */
+	public void evict(final String url) {
+		nodes.remove(url);
+	}
+}
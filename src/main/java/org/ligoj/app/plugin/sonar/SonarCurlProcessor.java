@@ -64,7 +64,7 @@ public class SonarCurlProcessor extends SessionAuthCurlProcessor {
 	 * @param parameters The available subscription parameters.
 	 * @return The value for BasicAuthentication's user part depending on the available SonarQube credentials materials.
 	 */
-	private static String getBasicUser(final String version, final Map<String, String> parameters) {
+	static String getBasicUser(final String version, final Map<String, String> parameters) {
 		final String username = parameters.get(SonarPluginResource.PARAMETER_USER);
 		final String password = parameters.get(SonarPluginResource.PARAMETER_PASSWORD);
 		return isToken(version, password) ? password : username;
@@ -77,7 +77,7 @@ public class SonarCurlProcessor extends SessionAuthCurlProcessor {
 	 * @param parameters The available subscription parameters.
 	 * @return The value for BasicAuthentication's password part depending on the available SonarQube credentials materials.
 	 */
-	private static String getBasicPassword(final String version,final Map<String, String> parameters) {
+	static String getBasicPassword(final String version,final Map<String, String> parameters) {
 		final String password = parameters.get(SonarPluginResource.PARAMETER_PASSWORD);
 		return isToken(version, password) ? "" : password;
 	}
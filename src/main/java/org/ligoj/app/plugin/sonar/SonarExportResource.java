@@ -0,0 +1,273 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.StreamingOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.ligoj.app.resource.subscription.SubscriptionResource;
+import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.JsonNode;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Streaming export of the issues and the security hotspots of a subscribed project, as newline delimited JSON. The
+ * SonarQube pages are written as soon as they are retrieved, so the memory does not depend on the count of items.
+ * SonarQube serves at most {@value #WINDOW} items by search: the issues are sliced by creation date, and the hotspots
+ * by status. An incomplete export ends with a <code>{"truncated":true,"reason":...}</code> line.
+ */
+@Path(SonarPluginResource.URL + "/export")
+@Service
+@Produces(SonarExportResource.NDJSON)
+@Slf4j
+public class SonarExportResource {
+
+	/**
+	 * Newline delimited JSON media type.
+	 */
+	public static final String NDJSON = "application/x-ndjson";
+
+	/**
+	 * Maximum page size of the searches.
+	 */
+	static final int PAGE_SIZE = 500;
+
+	/**
+	 * Maximum items served by SonarQube for a search, all pages included.
+	 */
+	static final int WINDOW = 10000;
+
+	/**
+	 * Hotspot statuses, each one searched separately.
+	 */
+	private static final List<String> HOTSPOT_STATUSES = List.of("TO_REVIEW", "REVIEWED");
+
+	/**
+	 * Truncation reason when a page is not available: node unavailable or overloaded, or missing page.
+	 */
+	static final String TRUNCATED_UNAVAILABLE = "unavailable";
+
+	/**
+	 * Truncation reason when more items than the SonarQube window cannot be sliced.
+	 */
+	static final String TRUNCATED_WINDOW = "window";
+
+	@Autowired
+	private SonarPluginResource resource;
+
+	@Autowired
+	private SubscriptionResource subscriptionResource;
+
+	@Autowired
+	private ObjectMapperTrim objectMapper;
+
+	/**
+	 * Stream the issues of a subscribed project, the oldest first.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The optional branch name. When <code>null</code>, the main branch.
+	 * @param pullRequest  The optional pull request key.
+	 * @return The issues as returned by <code>api/issues/search</code>, one JSON object per line.
+	 */
+	@GET
+	@Path("{subscription:\\d+}/issues")
+	public StreamingOutput getIssues(@PathParam("subscription") final int subscription, @QueryParam("branch") final String branch,
+			@QueryParam("pullRequest") final String pullRequest) {
+		final var parameters = getParameters(subscription);
+		final var query = "api/issues/search?componentKeys=" + encode(parameters.get(SonarPluginResource.PARAMETER_PROJECT))
+				+ getBranchQuery(branch, pullRequest) + "&s=CREATION_DATE&asc=true&ps=" + PAGE_SIZE;
+		return output -> {
+			try (var generator = createGenerator(output)) {
+				writeTruncated(generator, writeIssues(generator, parameters, query));
+			}
+		};
+	}
+
+	/**
+	 * Stream the security hotspots of a subscribed project: the ones to review, then the reviewed ones.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The optional branch name. When <code>null</code>, the main branch.
+	 * @param pullRequest  The optional pull request key.
+	 * @return The hotspots as returned by <code>api/hotspots/search</code>, one JSON object per line.
+	 */
+	@GET
+	@Path("{subscription:\\d+}/hotspots")
+	public StreamingOutput getHotspots(@PathParam("subscription") final int subscription, @QueryParam("branch") final String branch,
+			@QueryParam("pullRequest") final String pullRequest) {
+		final var parameters = getParameters(subscription);
+		final var query = "api/hotspots/search?projectKey=" + encode(parameters.get(SonarPluginResource.PARAMETER_PROJECT))
+				+ getBranchQuery(branch, pullRequest) + "&ps=" + PAGE_SIZE + "&status=";
+		return output -> {
+			try (var generator = createGenerator(output)) {
+				String truncated = null;
+				for (final var status : HOTSPOT_STATUSES) {
+					final var written = writePages(generator, parameters, query + status, "hotspots", null);
+					if (written < 0) {
+						truncated = TRUNCATED_UNAVAILABLE;
+						break;
+					}
+					if (written == WINDOW) {
+						log.warn("Hotspots {} of {} are truncated to {} items", status, parameters.get(SonarPluginResource.PARAMETER_PROJECT), WINDOW);
+						truncated = TRUNCATED_WINDOW;
+					}
+				}
+				writeTruncated(generator, truncated);
+			}
+		};
+	}
+
+	/**
+	 * Return the parameters of a visible subscription to a SonarQube project.
+	 */
+	private Map<String, String> getParameters(final int subscription) {
+		subscriptionResource.checkVisible(subscription);
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		if (parameters.get(SonarPluginResource.PARAMETER_PROJECT) == null) {
+			throw new NotFoundException("Not a SonarQube subscription: " + subscription);
+		}
+		return parameters;
+	}
+
+	private JsonGenerator createGenerator(final java.io.OutputStream output) {
+		return objectMapper.writer().withRootValueSeparator("").createGenerator(output);
+	}
+
+	/**
+	 * Write the final line of an incomplete export, so the client can tell it from a complete one.
+	 *
+	 * @param generator The generator.
+	 * @param reason    The truncation reason. When <code>null</code>, the export is complete and nothing is written.
+	 */
+	private void writeTruncated(final JsonGenerator generator, final String reason) {
+		if (reason != null) {
+			generator.writeStartObject();
+			generator.writeBooleanProperty("truncated", true);
+			generator.writeStringProperty("reason", reason);
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+	}
+
+	/**
+	 * Write the issues window by window. Each window starts at the creation date of the last written issue, and the
+	 * issues of this date already written are skipped.
+	 *
+	 * @return The truncation reason. <code>null</code> when all the issues are written.
+	 */
+	private String writeIssues(final JsonGenerator generator, final Map<String, String> parameters, final String query) {
+		final var boundary = new Boundary();
+		while (true) {
+			final var after = boundary.date;
+			final var written = writePages(generator, parameters,
+					after == null ? query : query + "&createdAfter=" + encode(after), "issues", boundary);
+			if (written < 0) {
+				return TRUNCATED_UNAVAILABLE;
+			}
+			if (written < WINDOW) {
+				// Last window
+				return null;
+			}
+			if (Objects.equals(after, boundary.date)) {
+				log.warn("Issues of {} are truncated: more than {} issues created at {}", parameters.get(SonarPluginResource.PARAMETER_PROJECT),
+						WINDOW, after);
+				return TRUNCATED_WINDOW;
+			}
+			boundary.skipped = new HashSet<>(boundary.keys);
+		}
+	}
+
+	/**
+	 * Creation date of the last written issues, and their keys.
+	 */
+	private static class Boundary {
+		private String date;
+		private Set<String> keys = new HashSet<>();
+		private Set<String> skipped = Set.of();
+	}
+
+	/**
+	 * Write the pages of a search until the last one or the SonarQube window.
+	 *
+	 * @return The count of read items, skipped ones included. <code>-1</code> when a page is not available.
+	 */
+	private int writePages(final JsonGenerator generator, final Map<String, String> parameters, final String query, final String property,
+			final Boundary boundary) {
+		final var version = resource.getSonarVersion(parameters).getRaw();
+		final var reader = objectMapper.readerFor(JsonNode.class);
+		var read = 0;
+		for (var page = 1; page * PAGE_SIZE <= WINDOW; page++) {
+			final String json;
+			try {
+				json = resource.getResource(version, parameters, query + "&p=" + page);
+			} catch (final ServiceUnavailableException e) {
+				log.warn("Export of {} is incomplete: {}", parameters.get(SonarPluginResource.PARAMETER_PROJECT), e.getMessage());
+				return -1;
+			}
+			if (json == null) {
+				log.warn("Export of {} is incomplete: page {} of {} is not available", parameters.get(SonarPluginResource.PARAMETER_PROJECT),
+						page, query);
+				return -1;
+			}
+			final var counter = new int[1];
+			SonarPluginResource.readComponents(json, property, reader, (JsonNode item) -> {
+				counter[0]++;
+				if (boundary == null || accept(boundary, item)) {
+					generator.writeTree(item);
+					generator.writeRaw('\n');
+				}
+				return true;
+			});
+			generator.flush();
+			read += counter[0];
+			if (counter[0] < PAGE_SIZE) {
+				// Last page
+				break;
+			}
+		}
+		return read;
+	}
+
+	/**
+	 * Return <code>true</code> when the issue is not already written, and track the last creation date.
+	 */
+	private boolean accept(final Boundary boundary, final JsonNode issue) {
+		final var key = issue.path("key").asString(null);
+		if (boundary.skipped.contains(key)) {
+			return false;
+		}
+		final var date = issue.path("creationDate").asString(null);
+		if (!Objects.equals(date, boundary.date)) {
+			boundary.date = date;
+			boundary.keys.clear();
+		}
+		boundary.keys.add(key);
+		return true;
+	}
+
+	private static String getBranchQuery(final String branch, final String pullRequest) {
+		if (StringUtils.isNotBlank(pullRequest)) {
+			return "&pullRequest=" + encode(pullRequest);
+		}
+		if (StringUtils.isNotBlank(branch)) {
+			return "&branch=" + encode(branch);
+		}
+		return "";
+	}
+
+	private static String encode(final String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+}
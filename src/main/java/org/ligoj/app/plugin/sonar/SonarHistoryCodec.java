@@ -0,0 +1,130 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar encoding of measure points sharing the same metrics. The first column holds the dates in seconds, the next
+ * ones the values of each metric in fixed point with {@value #DECIMALS} decimals. Each column stores its first value,
+ * then the differences between consecutive values, as zigzag variable length integers. Slowly changing measures are so
+ * stored with about one byte per value.
+ */
+public final class SonarHistoryCodec {
+
+	/**
+	 * Kept decimals of the values.
+	 */
+	public static final int DECIMALS = 2;
+
+	private static final double SCALE = Math.pow(10, DECIMALS);
+
+	/**
+	 * A recorded point.
+	 *
+	 * @param date     The date in milliseconds. Stored with a second precision.
+	 * @param measures The measures.
+	 */
+	public record Point(long date, Map<String, Double> measures) {
+	}
+
+	private SonarHistoryCodec() {
+		// Utility class
+	}
+
+	/**
+	 * Encode points.
+	 *
+	 * @param metrics The metric keys of the columns.
+	 * @param points  The points, ordered by date. Missing measures are stored as <code>0</code>.
+	 * @return The encoded columns.
+	 */
+	public static byte[] encode(final List<String> metrics, final List<Point> points) {
+		final var out = new ByteArrayOutputStream(16 + points.size() * (metrics.size() + 2));
+		writeVarLong(out, points.size());
+		var previous = 0L;
+		for (final var point : points) {
+			final var seconds = point.date() / 1000;
+			writeVarLong(out, zigzag(seconds - previous));
+			previous = seconds;
+		}
+		for (final var metric : metrics) {
+			previous = 0L;
+			for (final var point : points) {
+				final var value = Math.round(point.measures().getOrDefault(metric, 0d) * SCALE);
+				writeVarLong(out, zigzag(value - previous));
+				previous = value;
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode points.
+	 *
+	 * @param metrics The metric keys of the columns.
+	 * @param data    The encoded columns.
+	 * @return The points, ordered by date.
+	 */
+	public static List<Point> decode(final List<String> metrics, final byte[] data) {
+		final var in = ByteBuffer.wrap(data);
+		final var size = (int) readVarLong(in);
+		final var dates = new long[size];
+		var previous = 0L;
+		for (var i = 0; i < size; i++) {
+			previous += unzigzag(readVarLong(in));
+			dates[i] = previous * 1000;
+		}
+		final var values = new ArrayList<Map<String, Double>>(size);
+		for (var i = 0; i < size; i++) {
+			values.add(new HashMap<>());
+		}
+		for (final var metric : metrics) {
+			previous = 0L;
+			for (var i = 0; i < size; i++) {
+				previous += unzigzag(readVarLong(in));
+				values.get(i).put(metric, previous / SCALE);
+			}
+		}
+		final var points = new ArrayList<Point>(size);
+		for (var i = 0; i < size; i++) {
+			points.add(new Point(dates[i], values.get(i)));
+		}
+		return points;
+	}
+
+	private static long zigzag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(final ByteArrayOutputStream out, final long value) {
+		var remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			out.write((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.write((int) remaining);
+	}
+
+	private static long readVarLong(final ByteBuffer in) {
+		var result = 0L;
+		for (var shift = 0; shift < 64; shift += 7) {
+			final var b = in.get();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IllegalArgumentException("Malformed variable length integer");
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.ligoj.app.dao.SubscriptionRepository;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.app.plugin.sonar.dao.SonarMeasureHistoryRepository;
+import org.ligoj.app.plugin.sonar.model.SonarHistoryResolution;
+import org.ligoj.app.plugin.sonar.model.SonarMeasureHistory;
+import org.ligoj.app.resource.subscription.SubscriptionResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measure history of the subscribed projects and their branches. Each new snapshot is recorded in the block of the day.
+ * The blocks older than {@link #rawRetention} days are compacted to the last point of each day, and the points older
+ * than {@link #retention} days are deleted.
+ */
+@Path(SonarPluginResource.URL + "/history")
+@Service
+@Produces(MediaType.APPLICATION_JSON)
+@Transactional
+@Slf4j
+public class SonarHistoryResource {
+
+	/**
+	 * Default trend period.
+	 */
+	private static final Duration DEFAULT_PERIOD = Duration.ofDays(30);
+
+	@Autowired
+	private SonarMeasureHistoryRepository repository;
+
+	@Autowired
+	private SubscriptionRepository subscriptionRepository;
+
+	@Autowired
+	private SubscriptionResource subscriptionResource;
+
+	/**
+	 * Days during which every recorded point is kept.
+	 */
+	@Value("${sonar.history.raw:7}")
+	protected int rawRetention;
+
+	/**
+	 * Days during which the daily points are kept. <code>0</code> keeps them forever.
+	 */
+	@Value("${sonar.history.retention:730}")
+	protected int retention;
+
+	/**
+	 * Date of the last recorded snapshot, by subscription.
+	 */
+	private final Map<Integer, Long> recorded = new ConcurrentHashMap<>();
+
+	/**
+	 * Record the measures of a project snapshot, and of its branches but the main one, already recorded with the
+	 * project. A snapshot is recorded only once, but a failed record is retried with the next snapshot. The status checks
+	 * call it from a background thread, so it runs in its own transaction and its failure cannot roll back theirs.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param project      The project snapshot.
+	 * @param date         The snapshot date in milliseconds.
+	 */
+	public void record(final int subscription, final SonarProject project, final long date) {
+		if (recorded.getOrDefault(subscription, Long.MIN_VALUE) >= date) {
+			// Already recorded snapshot
+			return;
+		}
+		final var entity = subscriptionRepository.findOneExpected(subscription);
+		append(entity, "", project.getMeasuresAsMap(), date);
+		Objects.requireNonNullElse(project.getBranches(), List.<SonarBranch>of()).stream().filter(b -> !b.isMain())
+				.forEach(b -> append(entity, b.getName(), b.getMeasuresAsMap(), date));
+		recorded.put(subscription, date);
+	}
+
+	private void append(final Subscription subscription, final String branch, final Map<String, Double> measures, final long date) {
+		if (measures == null || measures.isEmpty()) {
+			return;
+		}
+		if (String.join(",", new TreeSet<>(measures.keySet())).length() > SonarMeasureHistory.METRICS_LENGTH) {
+			log.warn("Measures of subscription {} and branch '{}' not recorded, too many metrics: {}", subscription.getId(), branch,
+					measures.size());
+			return;
+		}
+		final var point = new SonarHistoryCodec.Point(date, measures);
+		final var last = append(subscription, branch, SonarHistoryResolution.RAW, point);
+		if (last != null && !SonarHistoryResolution.RAW.getPeriodStart(Instant.ofEpochMilli(date)).equals(last.getPeriodStart())) {
+			// A new period is started, compact the previous ones
+			compact(subscription, branch, Instant.ofEpochMilli(date));
+		}
+	}
+
+	/**
+	 * Append a point to the last block of a series, or to a new block when the period or the metrics differ.
+	 *
+	 * @return The previous last block of the series. May be <code>null</code>.
+	 */
+	private SonarMeasureHistory append(final Subscription subscription, final String branch, final SonarHistoryResolution resolution,
+			final SonarHistoryCodec.Point point) {
+		final var date = Instant.ofEpochMilli(point.date());
+		final var period = resolution.getPeriodStart(date);
+		final var metrics = new TreeSet<>(point.measures().keySet());
+		final var metricsAsString = String.join(",", metrics);
+		final var last = repository.findFirstBySubscriptionIdAndBranchAndResolutionOrderByLastPointDesc(subscription.getId(), branch, resolution);
+		if (last != null && !date.isAfter(last.getLastPoint())) {
+			// Not newer than the recorded points
+			return null;
+		}
+		final SonarMeasureHistory block;
+		final List<SonarHistoryCodec.Point> points;
+		if (last != null && last.getPeriodStart().equals(period) && last.getMetrics().equals(metricsAsString)) {
+			block = last;
+			points = new ArrayList<>(SonarHistoryCodec.decode(toMetrics(last), last.getData()));
+		} else {
+			block = new SonarMeasureHistory();
+			block.setSubscription(subscription);
+			block.setBranch(branch);
+			block.setResolution(resolution);
+			block.setPeriodStart(period);
+			block.setMetrics(metricsAsString);
+			points = new ArrayList<>();
+		}
+		points.add(point);
+		block.setData(SonarHistoryCodec.encode(List.copyOf(metrics), points));
+		block.setSize(points.size());
+		block.setLastPoint(date);
+		repository.saveAndFlush(block);
+		return last;
+	}
+
+	/**
+	 * Compact the old raw points of a series to the last point of each day, then delete the expired points of the
+	 * subscription.
+	 */
+	private void compact(final Subscription subscription, final String branch, final Instant now) {
+		final var before = SonarHistoryResolution.RAW.getPeriodStart(now.minus(Duration.ofDays(rawRetention)));
+		final var blocks = repository.findAllBefore(subscription.getId(), branch, SonarHistoryResolution.RAW, before);
+		if (!blocks.isEmpty()) {
+			final var daily = new TreeMap<Instant, SonarHistoryCodec.Point>();
+			blocks.forEach(b -> SonarHistoryCodec.decode(toMetrics(b), b.getData())
+					.forEach(p -> daily.put(SonarHistoryResolution.RAW.getPeriodStart(Instant.ofEpochMilli(p.date())), p)));
+			daily.values().forEach(p -> append(subscription, branch, SonarHistoryResolution.DAY, p));
+			repository.deleteAll(blocks);
+			log.info("Compacted {} blocks of subscription {} and branch '{}' to {} daily points", blocks.size(), subscription.getId(), branch,
+					daily.size());
+		}
+		if (retention > 0) {
+			repository.deleteAllBefore(subscription.getId(), now.minus(Duration.ofDays(retention)));
+		}
+	}
+
+	private List<String> toMetrics(final SonarMeasureHistory block) {
+		return Arrays.asList(StringUtils.split(block.getMetrics(), ','));
+	}
+
+	/**
+	 * Return the recorded measures of a subscribed project or one of its branches over a period.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The branch name. When empty, the project measures are returned.
+	 * @param from         The start of the period in milliseconds. By default, 30 days before the end.
+	 * @param to           The end of the period in milliseconds. By default, now.
+	 * @param metrics      The comma separated metrics to return. By default, all recorded metrics.
+	 * @return The recorded measures, in columns.
+	 */
+	@GET
+	@Path("{subscription:\\d+}")
+	public SonarTrend getTrend(@PathParam("subscription") final int subscription, @QueryParam("branch") final String branch,
+			@QueryParam("from") final Long from, @QueryParam("to") final Long to, @QueryParam("metrics") final String metrics) {
+		subscriptionResource.checkVisible(subscription);
+		final var end = to == null ? Instant.now() : Instant.ofEpochMilli(to);
+		final var start = from == null ? end.minus(DEFAULT_PERIOD) : Instant.ofEpochMilli(from);
+		final var branchName = StringUtils.defaultString(branch);
+
+		// Gather the points of the period, all resolutions included
+		final var points = new TreeMap<Long, Map<String, Double>>();
+		repository.findAllInRange(subscription, branchName, start, end).forEach(b -> SonarHistoryCodec.decode(toMetrics(b), b.getData())
+				.stream().filter(p -> p.date() >= start.toEpochMilli() && p.date() <= end.toEpochMilli())
+				.forEach(p -> points.put(p.date(), p.measures())));
+
+		// Build the columns
+		final var keys = metrics == null ? points.values().stream().flatMap(m -> m.keySet().stream()).distinct().sorted().toList()
+				: Arrays.stream(StringUtils.split(metrics, ',')).map(String::trim).toList();
+		final var values = new LinkedHashMap<String, List<Double>>();
+		keys.forEach(k -> values.put(k, points.values().stream().map(m -> m.get(k)).toList()));
+		final var result = new SonarTrend();
+		result.setBranch(branchName);
+		result.setDates(List.copyOf(points.keySet()));
+		result.setValues(values);
+		return result;
+	}
+
+	/**
+	 * Delete the recorded measures of a subscription.
+	 *
+	 * @param subscription The subscription identifier.
+	 */
+	public void delete(final int subscription) {
+		repository.deleteAllBy("subscription.id", subscription);
+		recorded.remove(subscription);
+	}
+}
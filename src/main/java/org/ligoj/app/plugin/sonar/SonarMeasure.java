@@ -30,7 +30,7 @@ public class SonarMeasure implements Serializable {
 	private String key;
 
 	/**
-	 * Integer value of this measure.
+	 * Value of this measure, decimals included.
 	 */
 	@JsonProperty("val")
 	@JsonAlias("value")
@@ -0,0 +1,249 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+import tools.jackson.databind.annotation.JsonSerialize;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact and immutable measures of a component. The metric keys are interned in a dictionary shared by all instances,
+ * and the components having the same metrics share the same key layout. The values are stored in a primitive array.
+ * Integral values are serialized as JSON integers, so the JSON shape is the one of a plain map.
+ */
+@JsonSerialize(using = SonarMeasures.Serializer.class)
+public final class SonarMeasures extends AbstractMap<String, Double> implements Serializable {
+
+	/**
+	 * SID
+	 */
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Shared metric key dictionary: identifier by key.
+	 */
+	private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+
+	/**
+	 * Shared metric key dictionary: key by identifier.
+	 */
+	private static final List<String> KEYS = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Shared key layouts.
+	 */
+	private static final Map<Layout, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+	/**
+	 * Empty measures.
+	 */
+	private static final SonarMeasures EMPTY = new SonarMeasures(new TreeMap<>());
+
+	/**
+	 * Ordered metric identifiers.
+	 */
+	private record Layout(int[] ids) {
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof Layout layout && Arrays.equals(ids, layout.ids);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(ids);
+		}
+	}
+
+	/**
+	 * The interned metric key layout of this component.
+	 */
+	private final Layout layout;
+
+	/**
+	 * The values, in the layout order.
+	 */
+	private final double[] values;
+
+	private SonarMeasures(final SortedMap<Integer, Double> measures) {
+		this.layout = LAYOUTS.computeIfAbsent(new Layout(measures.keySet().stream().mapToInt(Integer::intValue).toArray()), l -> l);
+		this.values = measures.values().stream().mapToDouble(Double::doubleValue).toArray();
+	}
+
+	/**
+	 * Return the compact form of the given measures.
+	 *
+	 * @param measures The measures. May be <code>null</code>. <code>null</code> values are ignored.
+	 * @return The compact measures. <code>null</code> when the given measures are <code>null</code>.
+	 */
+	public static SonarMeasures of(final Map<String, ? extends Number> measures) {
+		if (measures == null || measures instanceof SonarMeasures) {
+			return (SonarMeasures) measures;
+		}
+		final var sorted = new TreeMap<Integer, Double>();
+		measures.forEach((k, v) -> {
+			if (v != null) {
+				sorted.put(intern(k), v.doubleValue());
+			}
+		});
+		return sorted.isEmpty() ? EMPTY : new SonarMeasures(sorted);
+	}
+
+	/**
+	 * Return the measures of the given raw measures.
+	 *
+	 * @param measures The raw measures. When a metric is duplicated, the last value is kept.
+	 * @return The compact measures.
+	 */
+	public static SonarMeasures of(final Collection<SonarMeasure> measures) {
+		final var sorted = new TreeMap<Integer, Double>();
+		measures.forEach(m -> sorted.put(intern(m.getKey()), m.getValue()));
+		return sorted.isEmpty() ? EMPTY : new SonarMeasures(sorted);
+	}
+
+	/**
+	 * Return new measures completed or overridden by the given ones.
+	 *
+	 * @param measures The measures to add.
+	 * @return The merged measures.
+	 */
+	public SonarMeasures with(final Map<String, ? extends Number> measures) {
+		final var merged = new HashMap<String, Number>(this);
+		merged.putAll(measures);
+		return of(merged);
+	}
+
+	private static int intern(final String key) {
+		return IDS.computeIfAbsent(key, k -> {
+			synchronized (KEYS) {
+				KEYS.add(k);
+				return KEYS.size() - 1;
+			}
+		});
+	}
+
+	/**
+	 * Return the position of the given metric in this layout.
+	 */
+	private int indexOf(final Object key) {
+		final var id = key instanceof String ? IDS.get(key) : null;
+		return id == null ? -1 : Arrays.binarySearch(layout.ids, id);
+	}
+
+	/**
+	 * Return the primitive value of a metric.
+	 *
+	 * @param key          The metric key.
+	 * @param defaultValue The value returned when the metric is missing.
+	 * @return The metric value or the default one.
+	 */
+	public double getDouble(final String key, final double defaultValue) {
+		final var index = indexOf(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	@Override
+	public Double get(final Object key) {
+		final var index = indexOf(key);
+		return index < 0 ? null : values[index];
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public Set<Entry<String, Double>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Entry<String, Double>> iterator() {
+				return new Iterator<>() {
+					private int index;
+
+					@Override
+					public boolean hasNext() {
+						return index < values.length;
+					}
+
+					@Override
+					public Entry<String, Double> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						final var entry = new SimpleImmutableEntry<>(KEYS.get(layout.ids[index]), values[index]);
+						index++;
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+		};
+	}
+
+	/**
+	 * Replace the process local dictionary identifiers by the metric keys.
+	 *
+	 * @return The serialized form.
+	 */
+	@Serial
+	private Object writeReplace() {
+		return new Serialized(keySet().toArray(String[]::new), values);
+	}
+
+	/**
+	 * Java serialization form.
+	 *
+	 * @param keys   The metric keys, in the values order.
+	 * @param values The values.
+	 */
+	private record Serialized(String[] keys, double[] values) implements Serializable {
+
+		@Serial
+		private Object readResolve() {
+			final var measures = new HashMap<String, Double>();
+			for (var i = 0; i < keys.length; i++) {
+				measures.put(keys[i], values[i]);
+			}
+			return of(measures);
+		}
+	}
+
+	/**
+	 * JSON serializer writing the integral values as integers.
+	 */
+	public static class Serializer extends ValueSerializer<SonarMeasures> {
+
+		@Override
+		public void serialize(final SonarMeasures measures, final JsonGenerator generator, final SerializationContext context) {
+			generator.writeStartObject();
+			for (var i = 0; i < measures.values.length; i++) {
+				final var value = measures.values[i];
+				generator.writeName(KEYS.get(measures.layout.ids[i]));
+				if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+					generator.writeNumber((long) value);
+				} else {
+					generator.writeNumber(value);
+				}
+			}
+			generator.writeEndObject();
+		}
+	}
+}
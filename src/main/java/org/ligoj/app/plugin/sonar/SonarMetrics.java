@@ -0,0 +1,108 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * Metrics of the SonarQube calls and of the plugin operations. This implementation records nothing, and is used when
+ * Micrometer is not available in the host application. See {@link SonarMicrometerMetrics}.
+ */
+public class SonarMetrics {
+
+	/**
+	 * Status of the calls rejected without request.
+	 */
+	public static final String REJECTED = "rejected";
+
+	/**
+	 * Return the metrics of the host application: the Micrometer registry of the context when available, the global
+	 * Micrometer registry otherwise, or nothing when Micrometer is not available.
+	 *
+	 * @param context The application context.
+	 * @return The metrics.
+	 */
+	public static SonarMetrics of(final BeanFactory context) {
+		if (ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", SonarMetrics.class.getClassLoader())) {
+			return SonarMicrometerMetrics.create(context);
+		}
+		return new SonarMetrics();
+	}
+
+	/**
+	 * Return the API of a SonarQube resource, used as a bounded tag value.
+	 *
+	 * @param resource The SonarQube resource URL.
+	 * @return The API name: <code>version</code>, <code>measures</code>, <code>branches</code>, <code>search</code>,
+	 *         <code>gate</code>, <code>issues</code>, <code>auth</code>, <code>admin</code> or <code>other</code>.
+	 */
+	public static String getApi(final String resource) {
+		if (resource == null) {
+			return "other";
+		}
+		if (resource.startsWith("api/server/version")) {
+			return "version";
+		}
+		if (resource.startsWith("api/measures/") || resource.startsWith("api/resources") && resource.contains("resource=")) {
+			return "measures";
+		}
+		if (resource.startsWith("api/project_branches/")) {
+			return "branches";
+		}
+		if (resource.startsWith("api/projects/search") || resource.startsWith("api/components/search_projects") || resource.startsWith("api/resources")) {
+			return "search";
+		}
+		if (resource.startsWith("api/qualitygates/")) {
+			return "gate";
+		}
+		if (resource.startsWith("api/issues/") || resource.startsWith("api/hotspots/")) {
+			return "issues";
+		}
+		if (resource.startsWith("api/authentication/")) {
+			return "auth";
+		}
+		if (resource.startsWith("provisioning")) {
+			return "admin";
+		}
+		return "other";
+	}
+
+	/**
+	 * Record a completed call.
+	 *
+	 * @param node     The node URL.
+	 * @param resource The SonarQube resource URL.
+	 * @param status   The HTTP status, <code>0</code> without response, or {@value #REJECTED}.
+	 * @param start    The start of the call, from {@link System#nanoTime()}.
+	 */
+	public void call(final String node, final String resource, final String status, final long start) {
+		// Nothing to record
+	}
+
+	/**
+	 * Record the duration of an operation.
+	 *
+	 * @param operation The operation name.
+	 * @param node      The node URL.
+	 * @param supplier  The operation.
+	 * @param <T>       The result type.
+	 * @return The operation result.
+	 */
+	public <T> T time(final String operation, final String node, final Supplier<T> supplier) {
+		return supplier.get();
+	}
+
+	/**
+	 * Record the branch measures requests of a project.
+	 *
+	 * @param node The node URL.
+	 * @param size The count of requested branches.
+	 */
+	public void fanOut(final String node, final int size) {
+		// Nothing to record
+	}
+}
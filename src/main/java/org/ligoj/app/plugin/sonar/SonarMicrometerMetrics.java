@@ -0,0 +1,78 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer metrics of the SonarQube calls and of the plugin operations, tagged by node:
+ * <ul>
+ * <li><code>sonar.calls</code>: timer of the HTTP calls by API and status.</li>
+ * <li><code>sonar.calls.errors</code>: counter of the failed or rejected calls by API and status.</li>
+ * <li><code>sonar.operations</code>: timer of the plugin operations, including the JSON parsing.</li>
+ * <li><code>sonar.branches.fanout</code>: distribution of the branch measures requests by project.</li>
+ * </ul>
+ */
+public class SonarMicrometerMetrics extends SonarMetrics {
+
+	private final MeterRegistry registry;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param registry The target registry.
+	 */
+	public SonarMicrometerMetrics(final MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Return the metrics recorded in the registry of the context, or in the global registry.
+	 *
+	 * @param context The application context.
+	 * @return The metrics.
+	 */
+	static SonarMetrics create(final BeanFactory context) {
+		return new SonarMicrometerMetrics(context.getBeanProvider(MeterRegistry.class).getIfAvailable(() -> Metrics.globalRegistry));
+	}
+
+	@Override
+	public void call(final String node, final String resource, final String status, final long start) {
+		final var api = getApi(resource);
+		Timer.builder("sonar.calls").description("SonarQube HTTP calls").tags("node", node, "api", api, "status", status)
+				.publishPercentileHistogram().register(registry).record(Duration.ofNanos(System.nanoTime() - start));
+		if (!StringUtils.startsWith(status, "2")) {
+			registry.counter("sonar.calls.errors", "node", node, "api", api, "status", status).increment();
+		}
+	}
+
+	@Override
+	public <T> T time(final String operation, final String node, final Supplier<T> supplier) {
+		final var start = System.nanoTime();
+		var outcome = "error";
+		try {
+			final var result = supplier.get();
+			outcome = "success";
+			return result;
+		} finally {
+			Timer.builder("sonar.operations").description("SonarQube plugin operations")
+					.tags("node", node, "operation", operation, "outcome", outcome).publishPercentileHistogram().register(registry)
+					.record(Duration.ofNanos(System.nanoTime() - start));
+		}
+	}
+
+	@Override
+	public void fanOut(final String node, final int size) {
+		DistributionSummary.builder("sonar.branches.fanout").description("Branch measures requests by project").tags("node", node)
+				.publishPercentileHistogram().register(registry).record(size);
+	}
+}
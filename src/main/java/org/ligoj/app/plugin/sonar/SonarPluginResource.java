@@ -3,32 +3,49 @@
  */
 package org.ligoj.app.plugin.sonar;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.ligoj.app.api.SubscriptionStatusWithData;
+import org.ligoj.app.dao.SubscriptionRepository;
 import org.ligoj.app.plugin.qa.QaResource;
 import org.ligoj.app.plugin.qa.QaServicePlugin;
 import org.ligoj.app.resource.NormalizeFormat;
 import org.ligoj.app.resource.plugin.AbstractToolPluginResource;
 import org.ligoj.app.resource.plugin.VersionUtils;
 import org.ligoj.bootstrap.core.curl.CurlProcessor;
+import org.ligoj.bootstrap.core.curl.CurlRequest;
 import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tools.jackson.core.JacksonException;
-import tools.jackson.core.type.TypeReference;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectReader;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -81,6 +98,74 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 	 */
 	public static final int DEFAULT_MAX_BRANCHES = 10;
 
+	/**
+	 * Retrieved branch types, comma separated: <code>BRANCH</code>, <code>PULL_REQUEST</code>. When empty, all types are
+	 * retrieved. The main branch is always retrieved.
+	 */
+	public static final String PARAMETER_BRANCH_TYPES = KEY + ":branch-types";
+
+	/**
+	 * Metrics available in the status of the listed branches, by status property.
+	 */
+	private static final Map<String, String> BRANCH_STATUS_METRICS = Map.of("bugs", "bugs", "vulnerabilities", "vulnerabilities",
+			"codeSmells", "code_smells");
+
+	/**
+	 * Maximum concurrent branch measures requests to a node.
+	 */
+	public static final String PARAMETER_BRANCHES_CONCURRENCY = KEY + ":branches-concurrency";
+
+	/**
+	 * Default maximum concurrent branch measures requests to a node.
+	 */
+	public static final int DEFAULT_BRANCHES_CONCURRENCY = 4;
+
+	/**
+	 * Background refresh interval in seconds of the subscribed projects of a node.
+	 */
+	public static final String PARAMETER_REFRESH_INTERVAL = KEY + ":refresh-interval";
+
+	/**
+	 * Default background refresh interval in seconds. <code>0</code> disables the background refresh.
+	 */
+	public static final int DEFAULT_REFRESH_INTERVAL = 300;
+
+	/**
+	 * Secret shared with the SonarQube webhooks of a node, used to sign their payload.
+	 */
+	public static final String PARAMETER_WEBHOOK_SECRET = KEY + ":webhook-secret";
+
+	/**
+	 * When <code>true</code>, the link of a subscription retrieves the full project measures. Otherwise, only the
+	 * existence of the project is checked.
+	 */
+	public static final String PARAMETER_LINK_MEASURES = KEY + ":link-measures";
+
+	/**
+	 * Header of the HMAC-SHA256 signature of the webhook payloads.
+	 */
+	public static final String WEBHOOK_SIGNATURE = "X-Sonar-Webhook-HMAC-SHA256";
+
+	/**
+	 * Metric of the quality gate status.
+	 */
+	private static final String QUALITY_GATE_METRIC = "alert_status";
+
+	/**
+	 * Page size of <code>api/projects/search</code> requests.
+	 */
+	public static final int PROJECTS_PAGE_SIZE = 500;
+
+	/**
+	 * Maximum returned projects of a search.
+	 */
+	public static final int SEARCH_MAX_RESULTS = 100;
+
+	/**
+	 * Maximum project keys per <code>api/measures/search</code> request.
+	 */
+	public static final int MEASURES_SEARCH_CHUNK = 50;
+
 	/**
 	 * Sonar username able to connect to instance.
 	 */
@@ -113,15 +198,219 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 	@Value("${sonar.jira.url:https://sonarsource.atlassian.net}")
 	protected String versionServer;
 
+	/**
+	 * Time-to-live in seconds of the cached SonarQube version of each node.
+	 */
+	@Value("${sonar.cache.version:3600}")
+	protected int versionTimeToLive;
+
+	/**
+	 * Parsed SonarQube versions, by node URL.
+	 */
+	private final SonarCache<String, SonarVersion> versions = new SonarCache<>();
+
+	/**
+	 * Time-to-live in seconds of the successful administration access validation of each node, reused by the links.
+	 */
+	@Value("${sonar.cache.admin:60}")
+	protected int adminTimeToLive;
+
+	/**
+	 * Validated SonarQube versions, by node URL and credentials.
+	 */
+	private final SonarCache<List<String>, String> admins = new SonarCache<>();
+
+	/**
+	 * Lifetime in seconds of the shared authenticated processor of each node.
+	 */
+	@Value("${sonar.session.lifetime:300}")
+	protected int sessionLifetime;
+
+	/**
+	 * Shared authenticated processors, by node URL and credentials.
+	 */
+	private final SonarSessionPool sessions = new SonarSessionPool();
+
+	/**
+	 * In flight calls, by node, credentials and resource.
+	 */
+	private final SonarSingleFlight<List<String>, String> flights = new SonarSingleFlight<>();
+
+	/**
+	 * Delay in seconds after which the project catalog of a node is synchronized by delta.
+	 */
+	@Value("${sonar.catalog.delta:60}")
+	protected int catalogDelta;
+
+	/**
+	 * Delay in seconds after which the project catalog of a node is fully synchronized.
+	 */
+	@Value("${sonar.catalog.full:86400}")
+	protected int catalogFull;
+
+	/**
+	 * Maximum delay in seconds a search waits for the first synchronization of a catalog.
+	 */
+	@Value("${sonar.catalog.wait:2}")
+	protected int catalogWait;
+
+	/**
+	 * Executor of the first synchronization of the catalogs.
+	 */
+	private final ExecutorService catalogExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * When <code>true</code>, the project catalogs are persisted and reloaded after a restart.
+	 */
+	@Value("${sonar.catalog.persist:true}")
+	protected boolean catalogPersist;
+
+	/**
+	 * Project catalogs, by node identifier.
+	 */
+	private final Map<String, SonarCatalog> catalogs = new ConcurrentHashMap<>();
+
+	@Autowired
+	private SonarCatalogStore catalogStore;
+
+	/**
+	 * Deadline in seconds of the branch measures retrieval of a project.
+	 */
+	@Value("${sonar.branches.timeout:20}")
+	protected int branchesTimeout;
+
+	/**
+	 * Executor of the blocking branch measures requests.
+	 */
+	private final ExecutorService branchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Concurrent branch measures requests permits, by node URL. Rebuilt when the concurrency parameter of the node changes.
+	 */
+	private final Map<String, SonarBranchPermits> branchPermits = new ConcurrentHashMap<>();
+
+	/**
+	 * Maximum concurrent background refreshes of the subscribed projects, all nodes included.
+	 */
+	@Value("${sonar.refresh.concurrency:4}")
+	protected int refreshConcurrency;
+
+	/**
+	 * Delay in seconds without status check after which a subscribed project is no longer refreshed.
+	 */
+	@Value("${sonar.refresh.idle:3600}")
+	protected int refreshIdle;
+
+	/**
+	 * Consecutive failed calls opening the circuit of a node.
+	 */
+	@Value("${sonar.circuit.failures:5}")
+	protected int circuitFailures;
+
+	/**
+	 * Delay in seconds before a probe call is allowed on an open circuit.
+	 */
+	@Value("${sonar.circuit.open:30}")
+	protected int circuitOpen;
+
+	/**
+	 * Response time in milliseconds above which the concurrency limit of a node shrinks.
+	 */
+	@Value("${sonar.circuit.latency:5000}")
+	protected int circuitLatency;
+
+	/**
+	 * Maximum concurrent calls to a node.
+	 */
+	@Value("${sonar.circuit.concurrency:16}")
+	protected int circuitConcurrency;
+
+	/**
+	 * Maximum delay in seconds a call to a node waits for a permit of its concurrency limit.
+	 */
+	@Value("${sonar.circuit.queue:10}")
+	protected int circuitQueue;
+
+	/**
+	 * Circuit breaker and concurrency limiter of each node.
+	 */
+	private SonarCircuitBreaker breaker;
+
+	@Autowired
+	private BeanFactory beanFactory;
+
+	/**
+	 * Metrics of the calls and operations, recorded in the registry of the host application.
+	 */
+	private SonarMetrics metrics = new SonarMetrics();
+
+	/**
+	 * Background refresh of the subscribed projects.
+	 */
+	private SonarRefreshScheduler refresher;
+
+	/**
+	 * Measure history of the subscribed projects.
+	 */
+	@Autowired
+	private SonarHistoryResource history;
+
+	/**
+	 * Executor of the history records, each one in its own transaction, out of the status check transaction.
+	 */
+	private final ExecutorService historyExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("sonar-history").factory());
+
+	@Autowired
+	private SubscriptionRepository subscriptionRepository;
+
+	/**
+	 * Start the background refresh of the subscribed projects.
+	 */
+	@PostConstruct
+	public void start() {
+		refresher = new SonarRefreshScheduler(this::validateProject, Duration.ofSeconds(1), refreshConcurrency);
+		metrics = SonarMetrics.of(beanFactory);
+		breaker = new SonarCircuitBreaker(circuitFailures, Duration.ofSeconds(circuitOpen), Duration.ofMillis(circuitLatency), circuitConcurrency,
+				Duration.ofSeconds(circuitQueue));
+	}
+
 	@Override
 	public void link(final int subscription) throws Exception {
 		final var parameters = subscriptionResource.getParameters(subscription);
 
-		// Validate the node settings
-		validateAdminAccess(parameters);
+		// Validate the node settings, once for a bulk of subscriptions
+		validateAdminAccessCached(parameters);
 
 		// Validate the project settings
-		validateProject(parameters);
+		if (Boolean.parseBoolean(parameters.get(PARAMETER_LINK_MEASURES))) {
+			validateProject(parameters);
+		} else {
+			validateProjectExists(subscriptionRepository.findOneExpected(subscription).getNode().getId(), parameters);
+		}
+	}
+
+	/**
+	 * Validate the project exists, without retrieving its measures. The project is first looked up in the
+	 * synchronized catalog of the node, without triggering a synchronization, then with a single call.
+	 *
+	 * @param node       The node identifier.
+	 * @param parameters the project parameters.
+	 */
+	protected void validateProjectExists(final String node, final Map<String, String> parameters) {
+		final var id = ObjectUtils.getIfNull(parameters.get(PARAMETER_PROJECT), "0");
+		final var catalog = catalogs.get(node);
+		if (catalog != null && catalog.getSynchronizedAt() > 0 && catalog.get(id) != null) {
+			return;
+		}
+		final var sonarVersion = getSonarVersion(parameters);
+		final var encodedId = URLEncoder.encode(id, StandardCharsets.UTF_8);
+		final var query = sonarVersion.is63API() ? "api/components/show?component=" + encodedId
+				: "api/resources?format=json&resource=" + encodedId;
+		final var json = getResource(sonarVersion.getRaw(), parameters, query);
+		if (json == null || readFirst(parameters, json, objectMapper.readerFor(SonarProject.class)) == null) {
+			// Invalid id
+			throw new ValidationJsonException(PARAMETER_PROJECT, "sonar-project", id);
+		}
 	}
 
 	/**
@@ -131,9 +420,20 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 	 * @return project details.
 	 */
 	protected SonarProject validateProject(final Map<String, String> parameters)  {
+		return validateProject(parameters, null);
+	}
+
+	/**
+	 * Validate the project connectivity, reusing the measures of the components not analyzed since the previous state.
+	 *
+	 * @param parameters the project parameters.
+	 * @param previous   the previous state of this project with the same parameters. May be <code>null</code>.
+	 * @return project details.
+	 */
+	protected SonarProject validateProject(final Map<String, String> parameters, final SonarProject previous) {
 		// Get project's configuration
 		final var id = ObjectUtils.getIfNull(parameters.get(PARAMETER_PROJECT), "0");
-		final var result = getProject(parameters, id);
+		final var result = getProject(parameters, id, previous);
 		if (result == null) {
 			// Invalid id
 			throw new ValidationJsonException(PARAMETER_PROJECT, "sonar-project", id);
@@ -156,7 +456,8 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 		}
 
 		// Check the user can logins to SonarQube with the preempted authentication processor
-		final var version = getVersion(parameters);
+		final var sonarVersion = getSonarVersion(parameters);
+		final var version = sonarVersion.getRaw();
 		if (!StringUtils.trimToEmpty(getResource(version, parameters, "api/authentication/validate?format=json"))
 				.contains("true")) {
 			throw new ValidationJsonException(PARAMETER_USER, "sonar-login");
@@ -165,7 +466,7 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 		// Check the user has enough rights to access to the provisioning page
 		if (StringUtils.isNotBlank(version)) {
 			final String checkRights;
-			if (is63API(version)) {
+			if (sonarVersion.is63API()) {
 				checkRights = getResource(version, parameters, "api/projects/search");
 			} else {
 				checkRights = getResource(version, parameters, "provisioning");
@@ -177,17 +478,23 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 		return version;
 	}
 
-	private boolean is63API(final String version) {
-		return version != null && new DefaultArtifactVersion(version).compareTo(new DefaultArtifactVersion("6.3.0")) >= 0;
-	}
-
-	private boolean is66API(final String version) {
-		return version != null && new DefaultArtifactVersion(version).compareTo(new DefaultArtifactVersion("6.6.0")) >= 0;
+	/**
+	 * Validate the basic REST connectivity to SonarQube. A successful validation is reused during
+	 * {@link #adminTimeToLive} seconds by the calls with the same node and credentials.
+	 *
+	 * @param parameters the server parameters.
+	 * @return the detected SonarQube version.
+	 */
+	protected String validateAdminAccessCached(final Map<String, String> parameters) {
+		final var key = Arrays.asList(parameters.get(PARAMETER_URL), parameters.get(PARAMETER_USER), parameters.get(PARAMETER_PASSWORD));
+		return StringUtils.trimToNull(admins.get(key, Duration.ofSeconds(adminTimeToLive),
+				k -> StringUtils.defaultString(validateAdminAccess(parameters))));
 	}
 
 	/**
 	 * Return a SonarQube's resource. Return <code>null</code> when the resource is
-	 * not found.
+	 * not found. The authenticated processors of a node are pooled and reused by the next calls, and the concurrent
+	 * identical calls are coalesced.
 	 *
 	 * @param version    The remote SonarQube version
 	 * @param parameters The subscription parameters.
@@ -195,47 +502,405 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 	 * @return The JSON data.
 	 */
 	protected String getResource(final String version, final Map<String, String> parameters, final String resource) {
-		return getResource(new SonarCurlProcessor(version, parameters), parameters.get(PARAMETER_URL), resource);
+		// Concurrent identical calls with the same credentials share the same response
+		final var key = Arrays.asList(parameters.get(PARAMETER_URL), parameters.get(PARAMETER_USER), parameters.get(PARAMETER_PASSWORD), resource);
+		return flights.execute(key, () -> sessions.execute(version, parameters, Duration.ofSeconds(sessionLifetime),
+				processor -> getResource(processor, parameters.get(PARAMETER_URL), resource)));
 	}
 
 	/**
 	 * Return a SonarQube's resource. Return <code>null</code> when the resource is
-	 * not found.
+	 * not found. The call is guarded by the circuit breaker of the node.
 	 *
 	 * @param processor The CURL processor.
 	 * @param url       The base URL.
 	 * @param resource  The SonarQube resource URL to query.
 	 * @return The JSON data.
+	 * @throws jakarta.ws.rs.ServiceUnavailableException When the node is unavailable or overloaded.
 	 */
 	protected String getResource(final CurlProcessor processor, final String url, final String resource) {
 		// Get the resource using the preempted authentication
-		return processor.get(Strings.CS.appendIfMissing(url, "/") + resource);
+		final var request = new CurlRequest("GET", Strings.CS.appendIfMissing(url, "/") + resource, null);
+		request.setSaveResponse(true);
+		final var node = StringUtils.defaultString(url);
+		final var start = System.nanoTime();
+		var status = SonarMetrics.REJECTED;
+		try {
+			final var result = breaker.execute(node, () -> processor.process(request), request::getStatus);
+			status = String.valueOf(request.getStatus());
+			return result ? request.getResponse() : null;
+		} finally {
+			metrics.call(node, resource, status, start);
+		}
 	}
 
 	@Override
 	public String getVersion(final Map<String, String> parameters) {
-		return getResource(null, parameters, "api/server/version");
+		return getSonarVersion(parameters).getRaw();
 	}
 
 	/**
-	 * Return all SonarQube project without limit.
+	 * Return the parsed SonarQube version of a node. The version is cached by node URL.
 	 *
-	 * @param parameters     The subscription parameters.
-	 * @param formatCriteria Optional criteria
-	 * @return The gathered SonarQube projects data.
-	 */
-	protected List<SonarProject> getProjects(final Map<String, String> parameters, final String formatCriteria) {
-		final var version = getVersion(parameters);
-		if (is63API(version)) {
-			return objectMapper.readValue(getResource(version, parameters, "api/projects/search?q=" + URLEncoder.encode(formatCriteria, StandardCharsets.UTF_8)),
-					new TypeReference<SonarProjectList>() {
-						// Nothing to override
-					}).getComponents();
-		}
-		return objectMapper.readValue(getResource(version, parameters, "api/resources?format=json"),
-				new TypeReference<>() {
-					// Nothing to override
-				});
+	 * @param parameters The node parameters.
+	 * @return The parsed version. Never <code>null</code>, but the raw version may be <code>null</code> when unknown.
+	 */
+	protected SonarVersion getSonarVersion(final Map<String, String> parameters) {
+		final var version = versions.get(StringUtils.defaultString(parameters.get(PARAMETER_URL)), Duration.ofSeconds(versionTimeToLive),
+				k -> metrics.time("version", k, () -> Optional.ofNullable(getResource(null, parameters, "api/server/version")).map(SonarVersion::new)
+						.orElse(null)));
+		return ObjectUtils.getIfNull(version, () -> new SonarVersion(null));
+	}
+
+	/**
+	 * Evict the cached data of the given node parameters.
+	 *
+	 * @param parameters The node parameters.
+	 */
+	protected void evictCache(final Map<String, String> parameters) {
+		final var url = parameters.get(PARAMETER_URL);
+		versions.evict(StringUtils.defaultString(url));
+		admins.evictIf(k -> Objects.equals(k.getFirst(), url));
+		sessions.evict(url);
+		branchPermits.remove(StringUtils.defaultString(url));
+	}
+
+	/**
+	 * Stop the background refresh, and release the shared processors and the executors. The pending history records are completed.
+	 */
+	@PreDestroy
+	public void close() {
+		refresher.close();
+		branchExecutor.shutdownNow();
+		historyExecutor.shutdown();
+		catalogExecutor.shutdownNow();
+		sessions.close();
+	}
+
+	/**
+	 * Evict the cached data of the given node. Should be called after an update of the node's parameters.
+	 *
+	 * @param node The node identifier.
+	 */
+	@DELETE
+	@Path("{node}/cache")
+	public void evictCache(@PathParam("node") final String node) {
+		final var parameters = pvResource.getNodeParameters(node);
+		evictCache(parameters);
+
+		// Also drop the project snapshots, not evicted by the status checks
+		refresher.evictIf(p -> Objects.equals(p.get(PARAMETER_URL), parameters.get(PARAMETER_URL)));
+		breaker.evict(StringUtils.defaultString(parameters.get(PARAMETER_URL)));
+
+		// The catalog may belong to another server
+		catalogs.remove(node);
+		catalogStore.delete(node);
+	}
+
+	/**
+	 * Receive a SonarQube webhook notifying a completed analysis. The payload must be signed with the webhook secret of
+	 * the node. The subscriptions to the analyzed project are refreshed right away in the background. They are matched by
+	 * their project parameter, or by the key of their last snapshot when this parameter is a project identifier, as
+	 * with the API prior to 6.3.
+	 * <p>
+	 * SonarQube only sends the signature header, so this call gets past the Ligoj authentication with the API token of a
+	 * technical user given in the webhook URL: <code>?api-key={token}&amp;api-user={user}</code>. This user only needs the
+	 * API authorization of this path, and no visibility on the subscriptions.
+	 *
+	 * @param node      The node identifier.
+	 * @param signature The HMAC-SHA256 signature of the payload, in hexadecimal.
+	 * @param payload   The raw JSON payload.
+	 * @return The count of refreshed subscriptions.
+	 */
+	@POST
+	@Path("{node}/webhook")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public int webhook(@PathParam("node") final String node, @HeaderParam(WEBHOOK_SIGNATURE) final String signature, final String payload) {
+		final var parameters = pvResource.getNodeParameters(node);
+		if (!isValidSignature(parameters.get(PARAMETER_WEBHOOK_SECRET), payload, signature)) {
+			throw new ForbiddenException("Invalid webhook signature");
+		}
+		final var webhook = objectMapper.readValue(payload, SonarWebhook.class);
+		if (webhook.getProject() == null || !"SUCCESS".equals(ObjectUtils.getIfNull(webhook.getStatus(), "SUCCESS"))) {
+			// Nothing new to retrieve
+			return 0;
+		}
+		final var key = webhook.getProject().getKey();
+		final var url = parameters.get(PARAMETER_URL);
+		final var count = refresher.refreshIf((p, s) -> Objects.equals(p.get(PARAMETER_URL), url)
+				&& (Objects.equals(p.get(PARAMETER_PROJECT), key) || s != null && Objects.equals(s.getKey(), key)));
+		log.info("Webhook analysis of project {} at {}, {} subscriptions to refresh", key, webhook.getAnalysedAt(), count);
+		return count;
+	}
+
+	/**
+	 * Check the HMAC-SHA256 signature of a webhook payload.
+	 *
+	 * @param secret    The shared secret. When blank, the payload is rejected.
+	 * @param payload   The raw payload.
+	 * @param signature The received signature in hexadecimal.
+	 * @return <code>true</code> when the signature is valid.
+	 */
+	protected boolean isValidSignature(final String secret, final String payload, final String signature) {
+		if (StringUtils.isAnyBlank(secret, signature) || payload == null) {
+			return false;
+		}
+		try {
+			final var mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			final var expected = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+			return MessageDigest.isEqual(expected, HexFormat.of().parseHex(signature.trim()));
+		} catch (final IllegalArgumentException iae) {
+			// Not an hexadecimal signature
+			return false;
+		} catch (final GeneralSecurityException gse) {
+			throw new IllegalStateException("HMAC-SHA256 is not available", gse);
+		}
+	}
+
+	/**
+	 * Return the project catalog of a node. The catalog is reloaded from the persisted one on first use, then
+	 * synchronized by delta after {@link #catalogDelta} seconds, and fully after {@link #catalogFull} seconds or when the
+	 * delta is not supported. A single synchronization of a catalog runs at a time, and the other searches are served
+	 * meanwhile by the current catalog. The first full synchronization runs in the background, and is awaited at most
+	 * {@link #catalogWait} seconds. When the node is unavailable, the previously synchronized catalog is returned.
+	 *
+	 * @param node       The node identifier.
+	 * @param parameters The node parameters.
+	 * @return The synchronized catalog, or the projects retrieved so far.
+	 */
+	protected SonarCatalog getCatalog(final String node, final Map<String, String> parameters) {
+		final var catalog = catalogs.computeIfAbsent(node, this::loadCatalog);
+		if (!isCatalogDue(catalog)) {
+			return catalog;
+		}
+		final var first = catalog.getFullSynchronizedAt() == 0;
+		final var synchronization = catalog.synchronize(() -> {
+			if (isCatalogDue(catalog)) {
+				synchronizeSafely(node, parameters, catalog);
+			}
+		}, first ? catalogExecutor : Runnable::run);
+		if (first) {
+			try {
+				synchronization.get(catalogWait, TimeUnit.SECONDS);
+			} catch (final TimeoutException | ExecutionException e) {
+				log.info("Catalog of {} is being synchronized, {} projects retrieved so far", node, catalog.size());
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return catalog;
+	}
+
+	/**
+	 * Return <code>true</code> when the delay between two synchronizations of a catalog is elapsed.
+	 */
+	private boolean isCatalogDue(final SonarCatalog catalog) {
+		return System.currentTimeMillis() - catalog.getSynchronizedAt() >= catalogDelta * 1000L;
+	}
+
+	/**
+	 * Synchronize a catalog, keeping the previously synchronized projects when the node is unavailable.
+	 */
+	private void synchronizeSafely(final String node, final Map<String, String> parameters, final SonarCatalog catalog) {
+		try {
+			metrics.time("catalog", getNode(parameters), () -> {
+				synchronize(node, parameters, catalog, System.currentTimeMillis());
+				return null;
+			});
+		} catch (final ServiceUnavailableException e) {
+			log.warn("Catalog of {} not synchronized: {}", node, e.getMessage());
+		}
+	}
+
+	/**
+	 * Return the persisted catalog of a node, considered as fully synchronized.
+	 */
+	private SonarCatalog loadCatalog(final String node) {
+		final var catalog = new SonarCatalog();
+		if (catalogPersist) {
+			final var projects = catalogStore.load(node);
+			projects.forEach(catalog::put);
+			if (!projects.isEmpty()) {
+				catalog.setFullSynchronizedAt(System.currentTimeMillis());
+			}
+		}
+		return catalog;
+	}
+
+	/**
+	 * Synchronize a catalog, by delta when possible, and persist the changes.
+	 */
+	private void synchronize(final String node, final Map<String, String> parameters, final SonarCatalog catalog, final long now) {
+		final var sonarVersion = getSonarVersion(parameters);
+		final var changed = new ArrayList<SonarProject>();
+		final var removed = new ArrayList<String>();
+		if (!sonarVersion.is66API() || catalog.getFullSynchronizedAt() == 0 || now - catalog.getFullSynchronizedAt() >= catalogFull * 1000L
+				|| !synchronizeDelta(sonarVersion, parameters, catalog, changed, removed)) {
+			final var fullRemoved = synchronizeFull(sonarVersion, parameters, catalog, changed);
+			if (fullRemoved != null) {
+				// Complete, otherwise only the retrieved changes are kept
+				removed.addAll(fullRemoved);
+				catalog.setFullSynchronizedAt(now);
+			}
+		}
+		catalog.setSynchronizedAt(now);
+		if (catalogPersist && !(changed.isEmpty() && removed.isEmpty()) && catalogs.get(node) == catalog) {
+			// Not evicted during the synchronization
+			catalogStore.save(node, changed, removed);
+		}
+		log.info("Catalog of {} synchronized, {} projects, {} updated, {} removed", node, catalog.size(), changed.size(), removed.size());
+	}
+
+	/**
+	 * Synchronize all projects of a catalog.
+	 *
+	 * @return The removed project keys, or <code>null</code> when some projects could not be retrieved.
+	 */
+	private Collection<String> synchronizeFull(final SonarVersion sonarVersion, final Map<String, String> parameters, final SonarCatalog catalog,
+			final List<SonarProject> changed) {
+		final var removed = catalog.getKeys();
+		final Predicate<SonarProject> consumer = p -> {
+			if (p.getKey() == null) {
+				p.setKey(p.getId());
+			}
+			removed.remove(p.getKey());
+			if (catalog.put(p)) {
+				changed.add(p);
+			}
+			return true;
+		};
+		final boolean complete;
+		if (sonarVersion.is63API()) {
+			complete = readPages(sonarVersion.getRaw(), parameters, "api/projects/search?ps=" + PROJECTS_PAGE_SIZE, Integer.MAX_VALUE, consumer);
+		} else {
+			final var projectsAsJson = getResource(sonarVersion.getRaw(), parameters, "api/resources?format=json");
+			complete = projectsAsJson != null && readComponents(projectsAsJson, null, objectMapper.readerFor(SonarProject.class), consumer);
+		}
+		if (!complete) {
+			return null;
+		}
+		removed.forEach(catalog::remove);
+
+		// The projects of a previous incomplete delta may be removed
+		changed.removeIf(p -> removed.contains(p.getKey()));
+		return removed;
+	}
+
+	/**
+	 * Synchronize the projects analyzed since the previous synchronization, then reconcile the project keys. The API has
+	 * no filter on the recent analyses, so the projects are read by descending analysis date until the previous one. The
+	 * keys are reconciled with the paged project list, one call per {@value #PROJECTS_PAGE_SIZE} projects: the projects
+	 * not seen by the delta, such as the provisioned or renamed ones, are added, and the missing ones are removed.
+	 *
+	 * @return <code>true</code> when the catalog is synchronized, <code>false</code> when a full synchronization is needed.
+	 */
+	private boolean synchronizeDelta(final SonarVersion sonarVersion, final Map<String, String> parameters, final SonarCatalog catalog,
+			final List<SonarProject> changed, final List<String> removed) {
+		final var version = sonarVersion.getRaw();
+		final var watermark = catalog.getWatermark();
+		final Predicate<SonarProject> consumer = p -> {
+			if (catalog.put(p)) {
+				changed.add(p);
+			}
+			return true;
+		};
+
+		// The analyzed projects, the most recent first, until the previous synchronization
+		if (!readPages(version, parameters, "api/components/search_projects?s=analysisDate&asc=false&f=analysisDate&ps=" + PROJECTS_PAGE_SIZE,
+				SonarExportResource.WINDOW / PROJECTS_PAGE_SIZE,
+				p -> SonarBranchSelector.toTime(p.getLastAnalysisDate()) >= watermark && consumer.test(p))) {
+			// Missing page, or more recent analyses than the search window
+			return false;
+		}
+
+		// The new and the deleted projects, the known ones are already synchronized
+		final var keys = new HashSet<String>();
+		if (!readPages(version, parameters, "api/projects/search?ps=" + PROJECTS_PAGE_SIZE, Integer.MAX_VALUE, p -> {
+			if (p.getKey() == null) {
+				p.setKey(p.getId());
+			}
+			keys.add(p.getKey());
+			return catalog.get(p.getKey()) != null || consumer.test(p);
+		})) {
+			return false;
+		}
+		catalog.getKeys().stream().filter(k -> !keys.contains(k)).forEach(k -> {
+			catalog.remove(k);
+			removed.add(k);
+		});
+
+		// The projects analyzed then deleted during this synchronization
+		changed.removeIf(p -> !keys.contains(p.getKey()));
+		return true;
+	}
+
+	/**
+	 * Read the components of all pages of a search, until the consumer stops it or there are no more components.
+	 *
+	 * @return <code>true</code> when all components are read, or when the consumer has stopped the stream.
+	 *         <code>false</code> when a page could not be retrieved, or when the maximum pages are read.
+	 */
+	private boolean readPages(final String version, final Map<String, String> parameters, final String query, final int maxPages,
+			final Predicate<SonarProject> consumer) {
+		final var reader = objectMapper.readerFor(SonarProject.class);
+		final var counter = new AtomicInteger();
+		for (var page = 1; page <= maxPages; page++) {
+			final var projectsAsJson = getResource(version, parameters, query + "&p=" + page);
+			if (projectsAsJson == null) {
+				return false;
+			}
+			counter.set(0);
+			if (!readComponents(projectsAsJson, "components", reader, (SonarProject p) -> {
+				counter.incrementAndGet();
+				return consumer.test(p);
+			}) || counter.get() < PROJECTS_PAGE_SIZE) {
+				// Stopped by the consumer, or last page
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stream the components of a JSON array without building the whole list.
+	 *
+	 * @param json     The JSON data.
+	 * @param property The property name of the array, or <code>null</code> when the root is the array.
+	 * @param reader   The reader of the components.
+	 * @param consumer The component consumer. Returns <code>false</code> to stop the stream.
+	 * @param <T>      The component type.
+	 * @return <code>false</code> when the consumer has stopped the stream.
+	 */
+	static <T> boolean readComponents(final String json, final String property, final ObjectReader reader, final Predicate<T> consumer) {
+		try (var parser = reader.createParser(json)) {
+			var token = parser.nextToken();
+			if (property != null) {
+				// Move to the array, skipping the other properties such as "paging"
+				final var root = token;
+				token = null;
+				while (root == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.PROPERTY_NAME) {
+					final var name = parser.currentName();
+					final var value = parser.nextToken();
+					if (property.equals(name)) {
+						token = value;
+						break;
+					}
+					parser.skipChildren();
+				}
+			}
+			if (token != JsonToken.START_ARRAY) {
+				// No component
+				return true;
+			}
+			final var itemReader = reader.without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				if (!consumer.test(itemReader.readValue(parser))) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -246,138 +911,674 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 	 * @return The gathered SonarQube data.
 	 */
 	protected SonarProject getProject(final Map<String, String> parameters, final String id) {
-		final var version = getVersion(parameters);
+		return getProject(parameters, id, null);
+	}
+
+	/**
+	 * Return SonarQube project from its identifier. For 6.6+ API, the measures of the previous project state are reused
+	 * for the main branch and the other branches not analyzed since this previous state.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @param id         The SonarQube project identifier (internal id or key).
+	 * @param previous   The previous state of this project with the same parameters. May be <code>null</code>.
+	 * @return The gathered SonarQube data.
+	 */
+	protected SonarProject getProject(final Map<String, String> parameters, final String id, final SonarProject previous) {
+		return metrics.time("project", getNode(parameters), () -> loadProject(parameters, id, previous));
+	}
+
+	private SonarProject loadProject(final Map<String, String> parameters, final String id, final SonarProject previous) {
+		final var sonarVersion = getSonarVersion(parameters);
+		final var version = sonarVersion.getRaw();
 		final var encodedId = URLEncoder.encode(id, StandardCharsets.UTF_8);
-		List<SonarBranch> branches = Collections.emptyList();
+		final var maxBranches = sonarVersion.is66API()
+				? NumberUtils.toInt(getParameter(parameters, PARAMETER_MAX_BRANCHES, String.valueOf(DEFAULT_MAX_BRANCHES)))
+				: 0;
 
 		// Get the JSON project
 		final String queryUrl;
 		final String defaultMetrics;
-		if (is63API(version)) {
+		if (sonarVersion.is63API()) {
 			queryUrl = "api/measures/component?component=" + encodedId + "&metricKeys=";
 			defaultMetrics = DEFAULT_METRICS_63;
 		} else {
 			queryUrl = "api/resources?format=json&resource=" + encodedId + "&metrics=";
 			defaultMetrics = DEFAULT_METRICS;
 		}
-		var projectAsJson = getResource(version, parameters, queryUrl + getParameter(parameters, PARAMETER_METRICS_OVERRIDE, defaultMetrics));
-		if (projectAsJson == null) {
-			return null;
+		List<SonarBranch> branches = null;
+		final var previousBranches = previous == null ? List.<SonarBranch>of() : ObjectUtils.getIfNull(previous.getBranches(), List.<SonarBranch>of());
+		SonarProject project = null;
+		if (maxBranches > 1 && !previousBranches.isEmpty()) {
+			// The branch list tells whether the main branch has been analyzed since the previous state
+			branches = getSonarBranches(version, parameters, encodedId, maxBranches);
+			if (branches.stream().filter(SonarBranch::isMain).anyMatch(b -> findUnchanged(b, previousBranches) != null)) {
+				project = copy(previous);
+			}
+		}
+		if (project == null) {
+			final var projectAsJson = getResource(version, parameters, queryUrl + getParameter(parameters, PARAMETER_METRICS_OVERRIDE, defaultMetrics));
+			if (projectAsJson == null) {
+				return null;
+			}
+
+			// Parse the JSON project from the JSON: first property of 6.3+ API, first item of the older one
+			project = readFirst(parameters, projectAsJson, objectMapper.readerFor(SonarProject.class));
+			if (project == null) {
+				return null;
+			}
+			project.setMeasuresAsMap(sanitizeMeasures(project));
+			project.setRawMeasures(null);
+			if (sonarVersion.is63API()) {
+				project.setQualityGate(getQualityGate(version, parameters, encodedId, ""));
+			}
+		}
+		if (maxBranches > 1) {
+			// Parse and build the project's branches from the JSON
+			if (branches == null) {
+				branches = getSonarBranches(version, parameters, encodedId, maxBranches);
+			}
+			getBranchesMeasures(version, parameters, encodedId, branches, defaultMetrics, queryUrl, project, previousBranches);
+		}
+		project.setBranches(ObjectUtils.getIfNull(branches, Collections.emptyList()));
+		return project;
+	}
+
+	/**
+	 * Return a copy of a project, without its branches.
+	 */
+	private SonarProject copy(final SonarProject project) {
+		final var result = new SonarProject();
+		result.setId(project.getId());
+		result.setKey(project.getKey());
+		result.setName(project.getName());
+		result.setDescription(project.getDescription());
+		result.setMeasuresAsMap(project.getMeasuresAsMap());
+		result.setQualityGate(project.getQualityGate());
+		return result;
+	}
+
+	/**
+	 * Return the previous state of a branch when it has not been analyzed since, and its measures and quality gate are
+	 * complete.
+	 */
+	private SonarBranch findUnchanged(final SonarBranch branch, final List<SonarBranch> previousBranches) {
+		return branch.getAnalysisDate() == null ? null : previousBranches.stream()
+				.filter(p -> p.isMain() == branch.isMain() && Objects.equals(p.getName(), branch.getName())
+						&& Objects.equals(p.getPullRequestKey(), branch.getPullRequestKey())
+						&& branch.getAnalysisDate().equals(p.getAnalysisDate()) && p.isComplete())
+				.findFirst().orElse(null);
+	}
+
+	/**
+	 * Return the measures of the SonarQube projects linked to several subscriptions. The subscriptions sharing the same
+	 * node settings are retrieved in batch.
+	 *
+	 * @param subscriptions The subscription identifiers.
+	 * @return The gathered SonarQube data by subscription identifier. Not found projects are not included.
+	 */
+	public Map<Integer, SonarProject> getProjectsMeasures(final Collection<Integer> subscriptions) {
+		// Group the subscriptions by node settings
+		final var byNode = new HashMap<Map<String, String>, Map<Integer, String>>();
+		subscriptions.forEach(s -> {
+			final var parameters = new HashMap<>(subscriptionResource.getParameters(s));
+			final var id = parameters.remove(PARAMETER_PROJECT);
+			if (id != null) {
+				byNode.computeIfAbsent(parameters, k -> new HashMap<>()).put(s, id);
+			}
+		});
+
+		// Fan the projects back to the subscriptions
+		final var result = new HashMap<Integer, SonarProject>();
+		byNode.forEach((parameters, projects) -> {
+			final var measures = getProjectsMeasures(parameters, projects.values());
+			projects.forEach((s, id) -> Optional.ofNullable(measures.get(id)).ifPresent(p -> result.put(s, p)));
+		});
+		return result;
+	}
+
+	/**
+	 * Return the measures of several SonarQube projects of the same node. For 6.3+ API, the measures are retrieved in
+	 * chunks with <code>api/measures/search</code>, without branches. Otherwise, each project is retrieved individually.
+	 *
+	 * @param parameters The node parameters.
+	 * @param ids        The SonarQube project identifiers (internal id or key).
+	 * @return The gathered SonarQube data by project identifier. Not found projects are not included.
+	 */
+	protected Map<String, SonarProject> getProjectsMeasures(final Map<String, String> parameters, final Collection<String> ids) {
+		return getProjectsMeasures(parameters, ids, false);
+	}
+
+	/**
+	 * Return the measures of several SonarQube projects of the same node. For 6.3+ API, the measures are retrieved in
+	 * chunks with <code>api/measures/search</code>, without branches. Otherwise, each project is retrieved individually.
+	 *
+	 * @param parameters  The node parameters.
+	 * @param ids         The SonarQube project identifiers (internal id or key).
+	 * @param qualityGate When <code>true</code>, the quality gate status is retrieved in the same batch, and exposed as
+	 *                    the <code>qualityGateStatus</code> status of a main branch.
+	 * @return The gathered SonarQube data by project identifier. Not found projects are not included.
+	 */
+	protected Map<String, SonarProject> getProjectsMeasures(final Map<String, String> parameters, final Collection<String> ids,
+			final boolean qualityGate) {
+		return getProjectsMeasures(parameters, ids,
+				getParameter(parameters, PARAMETER_METRICS_OVERRIDE, DEFAULT_METRICS_63) + (qualityGate ? "," + QUALITY_GATE_METRIC : ""));
+	}
+
+	/**
+	 * Return the given metrics of several SonarQube projects of the same node, retrieved in batch for 6.3+ API.
+	 */
+	private Map<String, SonarProject> getProjectsMeasures(final Map<String, String> parameters, final Collection<String> ids,
+			final String metrics) {
+		final var sonarVersion = getSonarVersion(parameters);
+		final var result = new HashMap<String, SonarProject>();
+		final var keys = new ArrayList<>(new LinkedHashSet<>(ids));
+		if (!sonarVersion.is63API()) {
+			// No batch API
+			getProjectsMeasures(parameters, keys, result);
+			return result;
 		}
 
-		// Parse the JSON project from the JSON
-		final SonarProject project;
-		if (is63API(version)) {
-			project = objectMapper.readValue(unwrap(projectAsJson), SonarProject.class);
-			if (is66API(version)) {
-				// Parse and build the project's branches from the JSON
-				final int maxBranches = NumberUtils.toInt(getParameter(parameters, PARAMETER_MAX_BRANCHES, String.valueOf(DEFAULT_MAX_BRANCHES)));
-				if (maxBranches > 1) {
-					branches = getSonarBranches(version, parameters, encodedId, maxBranches, defaultMetrics, queryUrl);
+		for (var i = 0; i < keys.size(); i += MEASURES_SEARCH_CHUNK) {
+			final var chunk = keys.subList(i, Math.min(keys.size(), i + MEASURES_SEARCH_CHUNK));
+			final var measuresAsJson = getResource(sonarVersion.getRaw(), parameters, "api/measures/search?projectKeys="
+					+ chunk.stream().map(k -> URLEncoder.encode(k, StandardCharsets.UTF_8)).collect(Collectors.joining(","))
+					+ "&metricKeys=" + metrics);
+			if (measuresAsJson == null) {
+				// Rejected batch, one call per project
+				getProjectsMeasures(parameters, chunk, result);
+				continue;
+			}
+
+			// Group the measures by project, the quality gate status is not numeric
+			final var measures = new HashMap<String, List<SonarMeasure>>();
+			final var gates = new HashMap<String, String>();
+			this.metrics.time("parse", getNode(parameters), () -> objectMapper.readTree(measuresAsJson)).path("measures").forEach(m -> {
+				final var component = m.path("component").asString(null);
+				if (component == null) {
+					return;
+				}
+				if (QUALITY_GATE_METRIC.equals(m.path("metric").asString(null))) {
+					gates.put(component, m.path("value").asString(null));
+				} else {
+					measures.computeIfAbsent(component, k -> new ArrayList<>()).add(objectMapper.treeToValue(m, SonarMeasure.class));
 				}
+			});
+			gates.keySet().forEach(k -> measures.computeIfAbsent(k, x -> new ArrayList<>()));
+			measures.forEach((key, values) -> {
+				final var project = new SonarProject();
+				project.setId(key);
+				project.setKey(key);
+				project.setRawMeasures(values);
+				project.setMeasuresAsMap(sanitizeMeasures(project));
+				project.setBranches(Collections.emptyList());
+				project.setRawMeasures(null);
+				Optional.ofNullable(gates.get(key)).ifPresent(g -> {
+					final var main = new SonarBranch();
+					main.setMain(true);
+					main.setStatus(Map.of("qualityGateStatus", g));
+					project.setBranches(List.of(main));
+				});
+				result.put(key, project);
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Stream the measures of the SonarQube projects subscribed on a node, optionally restricted to a Ligoj project. The
+	 * snapshots refreshed in the background are served as is, the other projects are retrieved in batch. Each item is
+	 * written as soon as its chunk is retrieved. Only the visible subscriptions are included.
+	 *
+	 * @param node    The node identifier.
+	 * @param project The optional Ligoj project identifier.
+	 * @return The JSON array of {@link SonarPortfolioEntry}.
+	 */
+	@GET
+	@Path("portfolio/{node}")
+	public StreamingOutput getPortfolio(@PathParam("node") final String node, @QueryParam("project") final Integer project) {
+		// Gather the visible subscriptions and their parameters before streaming
+		final var subscriptions = (project == null ? subscriptionRepository.findAllBy("node.id", node)
+				: subscriptionRepository.findAllByProject(project).stream().filter(s -> node.equals(s.getNode().getId())).toList());
+		final var visible = new HashMap<Integer, Boolean>();
+		final var byNode = new LinkedHashMap<Map<String, String>, List<SonarPortfolioEntry>>();
+		subscriptions.stream().filter(s -> visible.computeIfAbsent(s.getProject().getId(), p -> isVisible(s.getId()))).forEach(s -> {
+			final var parameters = new HashMap<>(subscriptionResource.getParametersNoCheck(s.getId()));
+			final var entry = new SonarPortfolioEntry();
+			entry.setSubscription(s.getId());
+			entry.setProject(s.getProject().getPkey());
+			entry.setName(s.getProject().getName());
+			entry.setKey(parameters.remove(PARAMETER_PROJECT));
+			byNode.computeIfAbsent(parameters, k -> new ArrayList<>()).add(entry);
+		});
+
+		return output -> {
+			try (var generator = objectMapper.createGenerator(output)) {
+				generator.writeStartArray();
+				byNode.forEach((parameters, entries) -> writePortfolio(generator, parameters, entries));
+				generator.writeEndArray();
 			}
-		} else {
-			project = objectMapper.readValue(Strings.CS.removeEnd(Strings.CS.removeStart(projectAsJson, "["), "]"), SonarProject.class);
+		};
+	}
+
+	/**
+	 * Return <code>true</code> when the given subscription is visible by the current user.
+	 */
+	private boolean isVisible(final int subscription) {
+		try {
+			subscriptionResource.checkVisible(subscription);
+			return true;
+		} catch (final EntityNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Write the portfolio entries of the same node: first the background refreshed snapshots, then the other projects
+	 * by chunks.
+	 */
+	private void writePortfolio(final JsonGenerator generator, final Map<String, String> parameters, final List<SonarPortfolioEntry> entries) {
+		final var missing = new ArrayList<SonarPortfolioEntry>();
+		entries.forEach(e -> {
+			final var snapshot = refresher.peek(e.getSubscription());
+			if (snapshot == null) {
+				missing.add(e);
+			} else {
+				e.setAge(snapshot.getAge());
+				writePortfolio(generator, e, snapshot.project());
+			}
+		});
+		for (var i = 0; i < missing.size(); i += MEASURES_SEARCH_CHUNK) {
+			final var chunk = missing.subList(i, Math.min(missing.size(), i + MEASURES_SEARCH_CHUNK));
+			final Map<String, SonarProject> projects;
+			try {
+				projects = getProjectsMeasures(parameters, chunk.stream().map(SonarPortfolioEntry::getKey).toList(), true);
+			} catch (final ServiceUnavailableException e) {
+				// Only the snapshots of this node are available
+				log.warn("Portfolio of node {} is incomplete: {}", parameters.get(PARAMETER_URL), e.getMessage());
+				return;
+			}
+			chunk.forEach(e -> Optional.ofNullable(projects.get(e.getKey())).ifPresent(p -> writePortfolio(generator, e, p)));
+			generator.flush();
 		}
+	}
 
-		// Map nicely the measures
-		project.setMeasuresAsMap(sanitizeMeasures(project));
-		project.setBranches(branches);
-		project.setRawMeasures(null);
-		return project;
+	private void writePortfolio(final JsonGenerator generator, final SonarPortfolioEntry entry, final SonarProject project) {
+		entry.setMeasures(project.getMeasuresAsMap());
+		entry.setStatus(ObjectUtils.getIfNull(project.getBranches(), List.<SonarBranch>of()).stream().filter(SonarBranch::isMain)
+				.map(SonarBranch::getStatus).filter(Objects::nonNull).findFirst().orElse(null));
+		generator.writePOJO(entry);
 	}
 
 	/**
-	 * Retrieve branch details of a project. Only for 6.6 SonarQube versions.
+	 * Return the quality gate status of several subscribed projects, without measure nor condition. The snapshots
+	 * refreshed in the background are served as is, the other projects are retrieved in batch with
+	 * <code>api/measures/search</code>, without branches. Only the visible subscriptions to a SonarQube project are
+	 * included.
+	 *
+	 * @param subscriptions The subscription identifiers.
+	 * @return The quality gate statuses, in the order of the given subscriptions.
 	 */
-	private List<SonarBranch> getSonarBranches(final String version, final Map<String, String> parameters, final String encodedId, final int maxBranches,
-			final String defaultMetrics, final String queryUrl) {
-		final var branchesAsJson = getResource(version, parameters, "api/project_branches/list?project=" + encodedId);
-		final var branches = objectMapper.readValue(unwrap(Objects.requireNonNullElse(branchesAsJson, "{}")),
-						new TypeReference<List<SonarBranch>>() {
-							// Nothing to override
-						}).stream()
-				.sorted((b1, b2) -> {
-					// Sort the branches by their activities
-					if (b1.isMain()) {
-						return -1;
-					}
-					if (b2.isMain()) {
-						return 1;
+	@GET
+	@Path("quality-gate")
+	public List<SonarQualityGateStatus> getQualityGates(@QueryParam("subscription") final List<Integer> subscriptions) {
+		final var result = new ArrayList<SonarQualityGateStatus>();
+		final var byNode = new LinkedHashMap<Map<String, String>, List<SonarQualityGateStatus>>();
+		new LinkedHashSet<>(subscriptions).stream().filter(this::isVisible).forEach(s -> {
+			final var parameters = new HashMap<>(subscriptionResource.getParametersNoCheck(s));
+			if (parameters.get(PARAMETER_PROJECT) == null) {
+				// Not a SonarQube subscription
+				return;
+			}
+			final var status = new SonarQualityGateStatus();
+			status.setSubscription(s);
+			status.setKey(parameters.get(PARAMETER_PROJECT));
+			final var snapshot = refresher.peek(s);
+			if (snapshot == null) {
+				parameters.remove(PARAMETER_PROJECT);
+				byNode.computeIfAbsent(parameters, k -> new ArrayList<>()).add(status);
+			} else {
+				status.setAge(snapshot.getAge());
+				setQualityGate(status, snapshot.project());
+			}
+			result.add(status);
+		});
+
+		// Only the gate status of the other projects, in batch
+		byNode.forEach((parameters, statuses) -> {
+			try {
+				if (getSonarVersion(parameters).is63API()) {
+					final var projects = getProjectsMeasures(parameters, statuses.stream().map(SonarQualityGateStatus::getKey).toList(),
+							QUALITY_GATE_METRIC);
+					statuses.forEach(s -> Optional.ofNullable(projects.get(s.getKey())).ifPresent(p -> setQualityGate(s, p)));
+				}
+			} catch (final ServiceUnavailableException e) {
+				log.warn("Quality gates of node {} are unknown: {}", parameters.get(PARAMETER_URL), e.getMessage());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Complete the quality gate status from the project and its branches.
+	 */
+	private void setQualityGate(final SonarQualityGateStatus status, final SonarProject project) {
+		final var branches = ObjectUtils.getIfNull(project.getBranches(), List.<SonarBranch>of());
+		status.setStatus(Optional.ofNullable(project.getQualityGate()).map(SonarQualityGate::getStatus)
+				.orElseGet(() -> branches.stream().filter(SonarBranch::isMain).map(this::getQualityGateStatus).filter(Objects::nonNull)
+						.findFirst().orElse(null)));
+		if (branches.stream().anyMatch(b -> b.getName() != null)) {
+			final var byBranch = new LinkedHashMap<String, String>();
+			branches.stream().filter(b -> b.getName() != null)
+					.forEach(b -> Optional.ofNullable(getQualityGateStatus(b)).ifPresent(g -> byBranch.put(b.getName(), g)));
+			status.setBranches(byBranch);
+		}
+	}
+
+	private String getQualityGateStatus(final SonarBranch branch) {
+		if (branch.getQualityGate() != null) {
+			return branch.getQualityGate().getStatus();
+		}
+		return branch.getStatus() == null ? null : branch.getStatus().get("qualityGateStatus");
+	}
+
+	/**
+	 * Retrieve the given projects individually and put them in the given result.
+	 */
+	private void getProjectsMeasures(final Map<String, String> parameters, final Collection<String> ids,
+			final Map<String, SonarProject> result) {
+		ids.forEach(id -> Optional.ofNullable(getProject(parameters, id)).ifPresent(p -> result.put(id, p)));
+	}
+
+	/**
+	 * Retrieve branch details of a project, without measures: the main branch, then the most recently analyzed ones of
+	 * the retrieved types. The branches are streamed and only the selected ones are kept. Only for 6.6 SonarQube
+	 * versions.
+	 */
+	private List<SonarBranch> getSonarBranches(final String version, final Map<String, String> parameters, final String encodedId, final int maxBranches) {
+		return metrics.time("branches", getNode(parameters), () -> {
+			final var branchesAsJson = getResource(version, parameters, "api/project_branches/list?project=" + encodedId);
+			final var types = Arrays.stream(StringUtils.split(getParameter(parameters, PARAMETER_BRANCH_TYPES, ""), ','))
+					.map(String::trim).filter(StringUtils::isNotEmpty).toList();
+			final var selector = new SonarBranchSelector(maxBranches, types);
+			if (branchesAsJson != null) {
+				metrics.time("parse", getNode(parameters),
+						() -> readComponents(branchesAsJson, "branches", objectMapper.readerFor(SonarBranch.class), selector::offer));
+			}
+			return selector.getBranches();
+		});
+	}
+
+	/**
+	 * Complete the branches with their measures and their quality gate. The measures already available from the branch
+	 * list, and from the project for the main branch, are not requested again. The measures of the branches not analyzed
+	 * since their previous state are reused. The other measures are requested with one call per branch. The gate
+	 * conditions are only requested for the failing branches, other than the main one. A branch is complete when all its
+	 * calls have succeeded before the deadline, only the complete branches are reused by the next refresh.
+	 */
+	private void getBranchesMeasures(final String version, final Map<String, String> parameters, final String encodedId,
+			final List<SonarBranch> branches, final String defaultMetrics, final String queryUrl, final SonarProject project,
+			final List<SonarBranch> previousBranches) {
+		final var branchMetrics = Arrays.stream(StringUtils.split(getParameter(parameters, PARAMETER_METRICS_BRANCHES, defaultMetrics), ','))
+				.map(String::trim).filter(StringUtils::isNotEmpty).toList();
+		final var permits = getBranchPermits(parameters);
+		final var tasks = new ArrayList<SonarBranchPermits.Task>();
+		final var owners = new ArrayList<SonarBranch>();
+		branches.forEach(b -> {
+			final var unchanged = findUnchanged(b, previousBranches);
+			if (unchanged != null) {
+				// Not analyzed since the previous state
+				b.setMeasuresAsMap(unchanged.getMeasuresAsMap());
+				b.setQualityGate(unchanged.getQualityGate());
+				b.setComplete(true);
+				return;
+			}
+
+			// The gate of the main branch is the project one
+			b.setComplete(!b.isMain() || project.getQualityGate() != null);
+			final var gateTask = getBranchQualityGate(version, parameters, encodedId, b, project.getQualityGate());
+			if (gateTask != null) {
+				tasks.add(permits.wrap(gateTask));
+				owners.add(b);
+			}
+			final var known = getKnownMeasures(b, branchMetrics, project.getMeasuresAsMap());
+			if (!known.isEmpty()) {
+				b.setMeasuresAsMap(known);
+			}
+
+			// Get the missing metrics of this branch, with a bounded concurrency per node
+			final var missing = branchMetrics.stream().filter(m -> !known.containsKey(m)).collect(Collectors.joining(","));
+			if (!missing.isEmpty()) {
+				tasks.add(permits.wrap(() -> getBranchMeasures(version, parameters, queryUrl + missing, b)));
+				owners.add(b);
+			}
+		});
+		metrics.fanOut(getNode(parameters), tasks.size());
+		if (!tasks.isEmpty()) {
+			try {
+				// Not completed tasks are cancelled at the deadline, and their branches have only the known measures
+				final var futures = branchExecutor.invokeAll(tasks, branchesTimeout, TimeUnit.SECONDS);
+				for (var i = 0; i < futures.size(); i++) {
+					final var future = futures.get(i);
+					if (future.isCancelled()) {
+						// The interrupted request closes its socket, but its permit is given back without waiting for it
+						tasks.get(i).release();
 					}
-					return Strings.CS.compare(b2.getAnalysisDate(), b1.getAnalysisDate());
-				}).limit(maxBranches).toList();
-		final var branchMetrics = getParameter(parameters, PARAMETER_METRICS_BRANCHES, defaultMetrics);
-		if (!branchMetrics.isBlank()) {
-			// Get more metrics from each branch
-			branches.parallelStream().forEach(b -> {
-				final var branchesMetricsAsJson = getResource(version, parameters, queryUrl + branchMetrics
-						+ "&branch=" + URLEncoder.encode(b.getName(), StandardCharsets.UTF_8));
-				if (branchesMetricsAsJson != null) {
-					try {
-						final var branchesMetrics = objectMapper.readValue(unwrap(branchesMetricsAsJson), SonarProject.class);
-
-						// Complete with the branch measures
-						b.setMeasuresAsMap(sanitizeMeasures(branchesMetrics));
-					} catch (JacksonException je) {
-						log.warn("Unable to parse branch metrics {}", b.getName(), je);
+					if (future.state() != Future.State.SUCCESS || !Boolean.TRUE.equals(future.resultNow())) {
+						owners.get(i).setComplete(false);
 					}
 				}
-			});
+				final var cancelled = futures.stream().filter(Future::isCancelled).count();
+				if (cancelled > 0) {
+					log.warn("Measures of {}/{} branches of project {} not retrieved after {}s", cancelled, tasks.size(), encodedId, branchesTimeout);
+				}
+
+				// Failed tasks, including the calls rejected by the circuit breaker of the node
+				final var failures = futures.stream().filter(f -> f.state() == Future.State.FAILED).map(Future::exceptionNow).toList();
+				if (!failures.isEmpty()) {
+					log.warn("Measures of {}/{} branches of project {} not retrieved: {}", failures.size(), tasks.size(), encodedId,
+							failures.getFirst().getMessage());
+				}
+			} catch (final InterruptedException ie) {
+				owners.forEach(b -> b.setComplete(false));
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Return the branch measures requests permits of a node, sized from its current concurrency parameter.
+	 */
+	SonarBranchPermits getBranchPermits(final Map<String, String> parameters) {
+		final var size = Math.max(1, NumberUtils.toInt(getParameter(parameters, PARAMETER_BRANCHES_CONCURRENCY,
+				String.valueOf(DEFAULT_BRANCHES_CONCURRENCY)), DEFAULT_BRANCHES_CONCURRENCY));
+		return branchPermits.compute(StringUtils.defaultString(parameters.get(PARAMETER_URL)),
+				(k, p) -> p == null || p.getSize() != size ? new SonarBranchPermits(size) : p);
+	}
+
+	/**
+	 * Return the requested measures of a branch already available without additional call.
+	 */
+	private Map<String, Double> getKnownMeasures(final SonarBranch branch, final List<String> metrics, final Map<String, Double> projectMeasures) {
+		final var known = new HashMap<String, Double>();
+		if (branch.isMain()) {
+			// The project measures are the main branch ones
+			metrics.stream().filter(projectMeasures::containsKey).forEach(m -> known.put(m, projectMeasures.get(m)));
+		}
+		Objects.requireNonNullElse(branch.getStatus(), Map.<String, String>of()).forEach((k, v) -> {
+			final var metric = BRANCH_STATUS_METRICS.get(k);
+			if (metric != null && metrics.contains(metric) && NumberUtils.isCreatable(v)) {
+				known.put(metric, NumberUtils.toDouble(v));
+			}
+		});
+		return known;
+	}
+
+	/**
+	 * Complete a branch with its quality gate. The status of the main branch is the one of the project. The status of
+	 * the other branches is given by the branch list, and their conditions are only requested when the gate fails.
+	 *
+	 * @return The task requesting the gate conditions, returning <code>true</code> when retrieved. <code>null</code> when
+	 *         not needed.
+	 */
+	private Callable<Boolean> getBranchQualityGate(final String version, final Map<String, String> parameters, final String encodedId,
+			final SonarBranch branch, final SonarQualityGate projectGate) {
+		final var status = branch.getStatus() == null ? null : branch.getStatus().get("qualityGateStatus");
+		if (branch.isMain()) {
+			branch.setQualityGate(projectGate);
+		} else if ("OK".equals(status) || "NONE".equals(status)) {
+			final var gate = new SonarQualityGate();
+			gate.setStatus(status);
+			gate.setConditions(List.of());
+			branch.setQualityGate(gate);
+		} else if (status != null) {
+			return () -> {
+				branch.setQualityGate(getQualityGate(version, parameters, encodedId, getBranchQuery(branch)));
+				return branch.getQualityGate() != null;
+			};
 		}
-		return branches;
+		return null;
 	}
 
-	private Map<String, Integer> sanitizeMeasures(SonarProject project) {
-		return project.getRawMeasures().stream().collect(Collectors.toMap(SonarMeasure::getKey, v -> (int) v.getValue()));
+	/**
+	 * Return the quality gate status and the failing conditions of a project or a branch.
+	 *
+	 * @param version     The remote SonarQube version
+	 * @param parameters  The node parameters.
+	 * @param encodedId   The encoded SonarQube project key.
+	 * @param branchQuery The branch query, empty for the main branch.
+	 * @return The quality gate. <code>null</code> when not available.
+	 */
+	private SonarQualityGate getQualityGate(final String version, final Map<String, String> parameters, final String encodedId,
+			final String branchQuery) {
+		final var gateAsJson = getResource(version, parameters, "api/qualitygates/project_status?projectKey=" + encodedId + branchQuery);
+		if (gateAsJson == null || Thread.currentThread().isInterrupted()) {
+			return null;
+		}
+		try {
+			final SonarQualityGate gate = readFirst(parameters, gateAsJson, objectMapper.readerFor(SonarQualityGate.class));
+			if (gate != null) {
+				gate.setConditions(ObjectUtils.getIfNull(gate.getConditions(), List.<SonarQualityGateCondition>of()).stream()
+						.filter(c -> !"OK".equals(c.getStatus())).toList());
+			}
+			return gate;
+		} catch (final JacksonException je) {
+			log.warn("Unable to parse quality gate of {}{}", encodedId, branchQuery, je);
+			return null;
+		}
 	}
 
 	/**
-	 * Remove the wrapping '{..}' and return the first property
+	 * Return the query parameter selecting a branch or a pull request.
 	 */
-	private String unwrap(final String original) {
-		return original == null ? null : Strings.CS.removeEnd(original
-				.replace("\n", "").replace("\r", "")
-				.replaceFirst("\\{[ \t]*\"[a-zA-Z0-9_-]+\"[ \t]*:[ \t]*", ""), "}");
+	private String getBranchQuery(final SonarBranch branch) {
+		if (branch.getPullRequestKey() == null) {
+			return "&branch=" + URLEncoder.encode(branch.getName(), StandardCharsets.UTF_8);
+		}
+		return "&pullRequest=" + URLEncoder.encode(branch.getPullRequestKey(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Complete a branch with its measures.
+	 *
+	 * @return <code>true</code> when the measures have been retrieved.
+	 */
+	private boolean getBranchMeasures(final String version, final Map<String, String> parameters, final String queryUrl, final SonarBranch branch) {
+		final var branchesMetricsAsJson = getResource(version, parameters, queryUrl + getBranchQuery(branch));
+		if (branchesMetricsAsJson != null && !Thread.currentThread().isInterrupted()) {
+			try {
+				final SonarProject branchesMetrics = readFirst(parameters, branchesMetricsAsJson, objectMapper.readerFor(SonarProject.class));
+				if (branchesMetrics == null) {
+					return false;
+				}
+
+				// Complete with the branch measures
+				branch.setMeasuresAsMap(SonarMeasures.of(Objects.requireNonNullElse(branch.getMeasuresAsMap(), Map.<String, Double>of()))
+						.with(sanitizeMeasures(branchesMetrics)));
+				return true;
+			} catch (JacksonException je) {
+				log.warn("Unable to parse branch metrics {}", branch.getName(), je);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the node URL of the given parameters, used as metric tag.
+	 */
+	private String getNode(final Map<String, String> parameters) {
+		return StringUtils.defaultString(parameters.get(PARAMETER_URL));
+	}
+
+	/**
+	 * Return the compact measures of a parsed project or branch.
+	 */
+	static SonarMeasures sanitizeMeasures(final SonarProject project) {
+		return SonarMeasures.of(Objects.requireNonNullElse(project.getRawMeasures(), List.of()));
+	}
+
+	/**
+	 * Read the value of the first property of a JSON object, or the first item of a JSON array. The JSON data is parsed
+	 * once, without intermediate copy, and the remaining content is not read.
+	 *
+	 * @param parameters The node parameters.
+	 * @param json       The JSON data.
+	 * @param reader     The reader of the value.
+	 * @param <T>        The value type.
+	 * @return The read value. <code>null</code> when the object or the array is empty.
+	 */
+	private <T> T readFirst(final Map<String, String> parameters, final String json, final ObjectReader reader) {
+		return metrics.time("parse", getNode(parameters), () -> readFirst(json, reader));
+	}
+
+	/**
+	 * Read the value of the first property of a JSON object, or the first item of a JSON array, without metrics.
+	 */
+	static <T> T readFirst(final String json, final ObjectReader reader) {
+		try (var parser = reader.createParser(json)) {
+			final var root = parser.nextToken();
+			if (root == JsonToken.START_OBJECT && parser.nextToken() != JsonToken.PROPERTY_NAME
+					|| root != JsonToken.START_OBJECT && root != JsonToken.START_ARRAY) {
+				// No property
+				return null;
+			}
+			final var value = parser.nextToken();
+			if (value == null || value == JsonToken.VALUE_NULL || value.isStructEnd()) {
+				// Empty array or null value
+				return null;
+			}
+			return reader.without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS).readValue(parser);
+		}
 	}
 
 	/**
 	 * Search the SonarQube's projects matching to the given criteria. Name, display
-	 * name and description are considered.
+	 * name and key are considered. The projects are searched in the catalog of the node.
 	 *
 	 * @param node     the node to be tested with given parameters.
 	 * @param criteria the search criteria.
-	 * @return project names matching the criteria.
+	 * @return project names matching the criteria, the most relevant first. At most {@value #SEARCH_MAX_RESULTS} projects
+	 *         are returned.
 	 */
 	@GET
 	@Path("{node}/{criteria}")
 	@Consumes(MediaType.APPLICATION_JSON)
 	public List<SonarProject> findAllByName(@PathParam("node") final String node,
 			@PathParam("criteria") final String criteria) {
-
-		// Prepare the context, an ordered set of projects
-		final var format = new NormalizeFormat();
-		final var formatCriteria = format.format(criteria);
 		final var parameters = pvResource.getNodeParameters(node);
+		return getCatalog(node, parameters).search(new NormalizeFormat().format(criteria), SEARCH_MAX_RESULTS);
+	}
 
-		// Get the projects and parse them
-		final var projectsRaw = getProjects(parameters, formatCriteria);
-		final var result = new TreeMap<String, SonarProject>();
-		for (final var project : projectsRaw) {
-			final var name = StringUtils.trimToNull(project.getName());
-			final var key = project.getKey();
-			if (project.getId() == null) {
-				project.setId(project.getKey());
-			}
-
-			// Check the values of this project
-			if (format.format(name).contains(formatCriteria) || format.format(key).contains(formatCriteria)) {
-
-				// Retrieve description and display name
-				result.put(project.getName(), project);
-			}
-		}
-		return new ArrayList<>(result.values());
+	/**
+	 * Return all projects of a node, with their last analysis date, from the catalog of the node.
+	 *
+	 * @param node The node identifier.
+	 * @return The projects ordered by key.
+	 */
+	@GET
+	@Path("catalog/{node}")
+	public List<SonarProject> getCatalog(@PathParam("node") final String node) {
+		final var parameters = pvResource.getNodeParameters(node);
+		return getCatalog(node, parameters).getProjects();
 	}
 
 	@Override
@@ -392,14 +1593,60 @@ public class SonarPluginResource extends AbstractToolPluginResource implements Q
 
 	@Override
 	public SubscriptionStatusWithData checkSubscriptionStatus(final Map<String, String> parameters) throws Exception {
+		// Without subscription identifier, the project is not refreshed in the background
+		return toStatus(new SonarRefreshScheduler.Snapshot(validateProject(parameters, null), System.currentTimeMillis()));
+	}
+
+	@Override
+	public SubscriptionStatusWithData checkSubscriptionStatus(final int subscription, final String node, final Map<String, String> parameters)
+			throws Exception {
+		final var snapshot = getSnapshot(subscription, parameters);
+
+		// Record the new snapshots in the history in the background, a failed record cannot roll back the status check
+		historyExecutor.execute(() -> {
+			try {
+				history.record(subscription, snapshot.project(), snapshot.date());
+			} catch (final RuntimeException e) {
+				log.warn("Unable to record the history of subscription {}", subscription, e);
+			}
+		});
+		return toStatus(snapshot);
+	}
+
+	/**
+	 * Return the last snapshot of a subscribed project, refreshed in the background.
+	 */
+	private SonarRefreshScheduler.Snapshot getSnapshot(final int subscription, final Map<String, String> parameters) {
+		final var interval = NumberUtils.toInt(getParameter(parameters, PARAMETER_REFRESH_INTERVAL, String.valueOf(DEFAULT_REFRESH_INTERVAL)));
+		return refresher.get(subscription, parameters, Duration.ofSeconds(interval), Duration.ofSeconds(refreshIdle));
+	}
+
+	private SubscriptionStatusWithData toStatus(final SonarRefreshScheduler.Snapshot snapshot) {
 		final var nodeStatusWithData = new SubscriptionStatusWithData();
-		nodeStatusWithData.put("project", validateProject(parameters));
+		nodeStatusWithData.put("project", snapshot.project());
+		nodeStatusWithData.put("age", snapshot.getAge());
 		return nodeStatusWithData;
 	}
 
+	@Override
+	public void delete(final int subscription, final boolean remoteData) {
+		history.delete(subscription);
+	}
+
+	/**
+	 * Delete the project catalog of a node, its persisted projects reference the node.
+	 */
+	@Override
+	public void delete(final String node, final boolean remoteData) {
+		catalogs.remove(node);
+		catalogStore.delete(node);
+	}
+
 	@Override
 	public boolean checkStatus(final Map<String, String> parameters) {
 		// Status is UP <=> Administration access is UP
+		// The node settings may have changed, so the cached data is not reused
+		evictCache(parameters);
 		validateAdminAccess(parameters);
 		return true;
 	}
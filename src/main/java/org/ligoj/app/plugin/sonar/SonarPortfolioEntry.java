@@ -0,0 +1,54 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * Measures of a subscribed SonarQube project within a portfolio.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SonarPortfolioEntry {
+
+	/**
+	 * The subscription identifier.
+	 */
+	private int subscription;
+
+	/**
+	 * The Ligoj project key.
+	 */
+	private String project;
+
+	/**
+	 * The Ligoj project name.
+	 */
+	private String name;
+
+	/**
+	 * The SonarQube project identifier.
+	 */
+	private String key;
+
+	/**
+	 * The measures of the project.
+	 */
+	private Map<String, Double> measures;
+
+	/**
+	 * The status of the main branch, such as <code>qualityGateStatus</code>. May be <code>null</code>.
+	 */
+	private Map<String, String> status;
+
+	/**
+	 * Age in milliseconds of the served snapshot. <code>null</code> when just retrieved.
+	 */
+	private Long age;
+}
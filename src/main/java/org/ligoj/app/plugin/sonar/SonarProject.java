@@ -40,9 +40,9 @@ public class SonarProject extends NamedBean<String> implements IDescribableBean<
 	private List<SonarMeasure> rawMeasures;
 
 	/**
-	 * Mapped values for easiest traversals.
+	 * Mapped values for easiest traversals. Stored in a compact form.
 	 */
-	private Map<String, Integer> measuresAsMap;
+	private Map<String, Double> measuresAsMap;
 
 	/**
 	 * List of branches.
@@ -54,6 +54,26 @@ public class SonarProject extends NamedBean<String> implements IDescribableBean<
 	 */
 	private String key;
 
+	/**
+	 * Quality gate status and failing conditions. Only for 6.3+ API.
+	 */
+	private SonarQualityGate qualityGate;
+
+	/**
+	 * Date of the last analysis. Only for 6.3+ API, <code>null</code> when the project is only provisioned.
+	 */
+	@JsonAlias("analysisDate")
+	private String lastAnalysisDate;
+
+	/**
+	 * Set the measures, stored in a compact form.
+	 *
+	 * @param measuresAsMap The measures. May be <code>null</code>.
+	 */
+	public void setMeasuresAsMap(final Map<String, ? extends Number> measuresAsMap) {
+		this.measuresAsMap = SonarMeasures.of(measuresAsMap);
+	}
+
 	/**
 	 * The local name of the project.
 	 * 
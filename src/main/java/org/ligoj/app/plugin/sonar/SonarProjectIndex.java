@@ -0,0 +1,229 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Trigram index of the normalized project names and keys. A search intersects the posting lists of the criteria's
+ * trigrams, then ranks the remaining candidates and keeps the best ones. The index can be updated incrementally, and is
+ * compacted once half of its slots are removed entries.
+ */
+public class SonarProjectIndex {
+
+	/**
+	 * Trigram size.
+	 */
+	private static final int GRAM = 3;
+
+	/**
+	 * Ordered identifiers of the entries containing a trigram.
+	 */
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size;
+
+		private void add(final int id) {
+			// Identifiers are allocated in ascending order, appending keeps the order
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		private void remove(final int id) {
+			final var index = Arrays.binarySearch(ids, 0, size, id);
+			if (index >= 0) {
+				System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+				size--;
+			}
+		}
+
+		private boolean contains(final int id) {
+			return Arrays.binarySearch(ids, 0, size, id) >= 0;
+		}
+	}
+
+	/**
+	 * Entries by identifier. A removed entry leaves a <code>null</code> slot until the next compaction.
+	 */
+	private final List<SonarSearchEntry> entries = new ArrayList<>();
+
+	/**
+	 * Count of <code>null</code> slots.
+	 */
+	private int removed;
+
+	/**
+	 * Entry identifiers by project key.
+	 */
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	/**
+	 * Posting lists by trigram.
+	 */
+	private final Map<String, Postings> grams = new HashMap<>();
+
+	/**
+	 * Build an index from the given entries.
+	 *
+	 * @param entries The entries to index.
+	 */
+	public SonarProjectIndex(final Collection<SonarSearchEntry> entries) {
+		entries.forEach(this::add);
+	}
+
+	/**
+	 * Return the ranking of the entries matching to the given criteria: exact matches, then name prefix, then key prefix,
+	 * then name and key containing the criteria. Equally ranked entries are ordered by name.
+	 *
+	 * @param criteria The normalized criteria.
+	 * @return The ranking comparator.
+	 */
+	public static Comparator<SonarSearchEntry> ranking(final String criteria) {
+		return Comparator.<SonarSearchEntry>comparingInt(e -> e.rank(criteria)).thenComparing(SonarSearchEntry::getName)
+				.thenComparing(SonarSearchEntry::getKey);
+	}
+
+	private static Set<String> toGrams(final SonarSearchEntry entry) {
+		final var result = new HashSet<String>();
+		toGrams(entry.getName(), result);
+		toGrams(entry.getKey(), result);
+		return result;
+	}
+
+	private static void toGrams(final String value, final Set<String> result) {
+		for (var i = 0; i + GRAM <= value.length(); i++) {
+			result.add(value.substring(i, i + GRAM));
+		}
+	}
+
+	private static String getKey(final SonarSearchEntry entry) {
+		return Objects.requireNonNullElse(entry.getProject().getKey(), entry.getProject().getId());
+	}
+
+	/**
+	 * Add or replace an entry. Entries are identified by their project key.
+	 *
+	 * @param entry The entry to index.
+	 */
+	public synchronized void add(final SonarSearchEntry entry) {
+		remove(getKey(entry));
+		index(entry);
+	}
+
+	private void index(final SonarSearchEntry entry) {
+		final var id = entries.size();
+		entries.add(entry);
+		ids.put(getKey(entry), id);
+		toGrams(entry).forEach(g -> grams.computeIfAbsent(g, k -> new Postings()).add(id));
+	}
+
+	/**
+	 * Remove an entry.
+	 *
+	 * @param key The project key.
+	 */
+	public synchronized void remove(final String key) {
+		final var id = ids.remove(key);
+		if (id != null) {
+			toGrams(entries.get(id)).forEach(g -> {
+				final var postings = grams.get(g);
+				postings.remove(id);
+				if (postings.size == 0) {
+					grams.remove(g);
+				}
+			});
+			entries.set(id, null);
+			removed++;
+			if (removed * 2 > entries.size()) {
+				compact();
+			}
+		}
+	}
+
+	/**
+	 * Reindex the remaining entries with contiguous identifiers, in the same order.
+	 */
+	private void compact() {
+		final var remaining = entries.stream().filter(Objects::nonNull).toList();
+		entries.clear();
+		ids.clear();
+		grams.clear();
+		removed = 0;
+		remaining.forEach(this::index);
+	}
+
+	/**
+	 * Return the indexed entries count.
+	 *
+	 * @return The indexed entries count.
+	 */
+	public synchronized int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Return the slots count, the removed entries not yet compacted included.
+	 *
+	 * @return The slots count.
+	 */
+	synchronized int capacity() {
+		return entries.size();
+	}
+
+	/**
+	 * Return the best entries matching to the given criteria.
+	 *
+	 * @param criteria The normalized criteria.
+	 * @param limit    The maximum returned entries.
+	 * @return The best matching entries, ordered by {@link #ranking(String)}.
+	 */
+	public synchronized List<SonarSearchEntry> search(final String criteria, final int limit) {
+		final var ranking = ranking(criteria);
+
+		// Bounded heap, the worst kept candidate on top
+		final var heap = new PriorityQueue<>(ranking.reversed());
+		candidates(criteria).filter(e -> e.matches(criteria)).forEach(e -> {
+			if (heap.size() < limit) {
+				heap.add(e);
+			} else if (limit > 0 && ranking.compare(e, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(e);
+			}
+		});
+		final var result = new ArrayList<>(heap);
+		result.sort(ranking);
+		return result;
+	}
+
+	/**
+	 * Return the candidates containing all trigrams of the given criteria.
+	 */
+	private Stream<SonarSearchEntry> candidates(final String criteria) {
+		if (criteria.length() < GRAM) {
+			// Too short criteria to use the index
+			return entries.stream().filter(Objects::nonNull);
+		}
+		final var postings = new ArrayList<Postings>();
+		final var criteriaGrams = new HashSet<String>();
+		toGrams(criteria, criteriaGrams);
+		for (final var gram : criteriaGrams) {
+			final var posting = grams.get(gram);
+			if (posting == null) {
+				// No entry has this trigram
+				return Stream.empty();
+			}
+			postings.add(posting);
+		}
+
+		// Iterate the smallest posting list, and check the others
+		postings.sort(Comparator.comparingInt(p -> p.size));
+		final var smallest = postings.getFirst();
+		final var others = postings.subList(1, postings.size());
+		return Arrays.stream(smallest.ids, 0, smallest.size).filter(id -> others.stream().allMatch(p -> p.contains(id)))
+				.mapToObj(entries::get);
+	}
+}
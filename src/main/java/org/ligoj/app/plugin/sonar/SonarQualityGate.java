@@ -0,0 +1,37 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Quality gate status of a project or a branch, from <code>api/qualitygates/project_status</code>.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SonarQualityGate implements Serializable {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Gate status: <code>OK</code>, <code>WARN</code>, <code>ERROR</code> or <code>NONE</code>.
+	 */
+	private String status;
+
+	/**
+	 * The failing conditions. Empty when the gate is passed.
+	 */
+	private List<SonarQualityGateCondition> conditions;
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Condition of a quality gate.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SonarQualityGateCondition implements Serializable {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Condition status: <code>OK</code>, <code>WARN</code> or <code>ERROR</code>.
+	 */
+	private String status;
+
+	/**
+	 * Metric key of the condition, such as <code>new_coverage</code>.
+	 */
+	@JsonProperty("metric")
+	@JsonAlias("metricKey")
+	private String metric;
+
+	/**
+	 * Comparator of the actual value and the threshold, such as <code>LT</code> or <code>GT</code>.
+	 */
+	private String comparator;
+
+	/**
+	 * Error threshold of the condition, such as <code>80</code>.
+	 */
+	@JsonProperty("threshold")
+	@JsonAlias("errorThreshold")
+	private String threshold;
+
+	/**
+	 * Actual value of the metric, compared to the threshold.
+	 */
+	@JsonProperty("actual")
+	@JsonAlias("actualValue")
+	private String actual;
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * Quality gate status of a subscribed SonarQube project, without measure nor condition.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SonarQualityGateStatus {
+
+	/**
+	 * The subscription identifier.
+	 */
+	private int subscription;
+
+	/**
+	 * The SonarQube project identifier.
+	 */
+	private String key;
+
+	/**
+	 * The gate status of the project: <code>OK</code>, <code>WARN</code>, <code>ERROR</code> or <code>NONE</code>. May
+	 * be <code>null</code> when unknown.
+	 */
+	private String status;
+
+	/**
+	 * The gate status by branch name. <code>null</code> when the branches are not known.
+	 */
+	private Map<String, String> branches;
+
+	/**
+	 * Age in milliseconds of the served snapshot. <code>null</code> when just retrieved.
+	 */
+	private Long age;
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Background refresh of the subscribed projects. The last snapshot of each subscription is served immediately, while a
+ * scheduler refreshes it at the cadence of its node. The refresh dates are spread with a jitter, and the concurrent
+ * refreshes are bounded by a budget shared by all nodes. A subscription no longer read is no longer refreshed. The
+ * snapshots are held by subscription identifier, and each one is refreshed with the last parameters read for it, so
+ * updated credentials are used by the next refresh.
+ */
+@Slf4j
+public class SonarRefreshScheduler implements AutoCloseable {
+
+	/**
+	 * Maximal jitter ratio applied to the refresh interval.
+	 */
+	private static final double JITTER = 0.1;
+
+	/**
+	 * A project snapshot.
+	 *
+	 * @param project The project.
+	 * @param date    The refresh date in milliseconds.
+	 */
+	public record Snapshot(SonarProject project, long date) {
+
+		/**
+		 * Return the age of this snapshot.
+		 *
+		 * @return The age in milliseconds.
+		 */
+		public long getAge() {
+			return System.currentTimeMillis() - date;
+		}
+	}
+
+	/**
+	 * A refreshed subscription.
+	 */
+	private static class Subscription {
+		private volatile Map<String, String> parameters;
+		private volatile Snapshot snapshot;
+		private volatile Duration interval;
+		private volatile Duration idle;
+		private volatile long next;
+		private volatile long access;
+		private volatile boolean running;
+		private volatile boolean requested;
+
+		private Subscription(final Map<String, String> parameters) {
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * Subscriptions by identifier.
+	 */
+	private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+	private final BiFunction<Map<String, String>, SonarProject, SonarProject> loader;
+
+	private final Semaphore budget;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Constructor starting the scheduler.
+	 *
+	 * @param loader      The project loader, from the subscription parameters and the previous project snapshot, when
+	 *                    available, for an incremental refresh. Throws {@link ValidationJsonException} when the project
+	 *                    does not exist.
+	 * @param tick        The period of the refresh dates checks.
+	 * @param concurrency The maximum concurrent refreshes.
+	 */
+	public SonarRefreshScheduler(final BiFunction<Map<String, String>, SonarProject, SonarProject> loader, final Duration tick, final int concurrency) {
+		this.loader = loader;
+		this.budget = new Semaphore(Math.max(1, concurrency));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("sonar-refresh").factory());
+		this.scheduler.scheduleWithFixedDelay(this::refreshDue, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the last snapshot of a subscription, and load it synchronously the first time. The subscription is then
+	 * refreshed in the background.
+	 *
+	 * @param id         The subscription identifier.
+	 * @param parameters The subscription parameters.
+	 * @param interval   The refresh interval. When not positive, the project is always loaded synchronously.
+	 * @param idle       The delay without read after which the subscription is no longer refreshed.
+	 * @return The snapshot.
+	 */
+	public Snapshot get(final int id, final Map<String, String> parameters, final Duration interval, final Duration idle) {
+		if (!interval.isPositive()) {
+			return new Snapshot(loader.apply(parameters, null), System.currentTimeMillis());
+		}
+		final var copy = Map.copyOf(parameters);
+		final var subscription = subscriptions.computeIfAbsent(id, k -> new Subscription(copy));
+		final var now = System.currentTimeMillis();
+		subscription.parameters = copy;
+		subscription.interval = interval;
+		subscription.idle = idle;
+		subscription.access = now;
+		var snapshot = subscription.snapshot;
+		if (snapshot == null) {
+			// First read, or previous failure: synchronous load
+			snapshot = new Snapshot(load(id, subscription), now);
+			store(id, subscription, snapshot);
+			subscription.next = now + jitter(interval);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Return the last snapshot of a subscription, without loading it nor extending its refresh.
+	 *
+	 * @param id The subscription identifier.
+	 * @return The snapshot. <code>null</code> when the subscription is not refreshed in the background.
+	 */
+	public Snapshot peek(final int id) {
+		final var subscription = subscriptions.get(id);
+		return subscription == null ? null : subscription.snapshot;
+	}
+
+	private SonarProject load(final int id, final Subscription subscription) {
+		try {
+			return loader.apply(subscription.parameters, null);
+		} catch (final RuntimeException e) {
+			// Not refreshed anymore until the next read
+			subscriptions.remove(id, subscription);
+			throw e;
+		}
+	}
+
+	/**
+	 * Store a loaded snapshot, only when the subscription has not been evicted or replaced during the load.
+	 */
+	private void store(final int id, final Subscription subscription, final Snapshot snapshot) {
+		subscriptions.computeIfPresent(id, (k, s) -> {
+			if (s == subscription) {
+				s.snapshot = snapshot;
+			}
+			return s;
+		});
+	}
+
+	/**
+	 * Return the delay before the next refresh, with a jitter.
+	 */
+	private long jitter(final Duration interval) {
+		final var millis = interval.toMillis();
+		return millis + (long) (millis * JITTER * ThreadLocalRandom.current().nextDouble(-1, 1));
+	}
+
+	/**
+	 * Drop the subscriptions not read for a while.
+	 */
+	private void purgeIdle(final long now) {
+		subscriptions.values().removeIf(s -> s.idle != null && s.access + s.idle.toMillis() < now);
+	}
+
+	/**
+	 * Drop the idle subscriptions, then refresh the subscriptions having reached their refresh date.
+	 */
+	private void refreshDue() {
+		final var now = System.currentTimeMillis();
+		purgeIdle(now);
+		subscriptions.forEach((id, subscription) -> {
+			if (!subscription.running && subscription.snapshot != null && subscription.next <= now) {
+				subscription.running = true;
+				executor.execute(() -> refresh(id, subscription));
+			}
+		});
+	}
+
+	private void refresh(final int id, final Subscription subscription) {
+		final var parameters = subscription.parameters;
+		try {
+			budget.acquire();
+			subscription.requested = false;
+			try {
+				store(id, subscription, new Snapshot(loader.apply(parameters, subscription.snapshot.project()), System.currentTimeMillis()));
+			} finally {
+				budget.release();
+			}
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch (final ValidationJsonException ve) {
+			// The project does not exist anymore, the next read will report it
+			log.info("Project {} of subscription {} is not available anymore", parameters.get(SonarPluginResource.PARAMETER_PROJECT), id);
+			subscriptions.remove(id, subscription);
+		} catch (final RuntimeException e) {
+			// Keep the previous snapshot, its age increases
+			log.warn("Unable to refresh the project {} of subscription {}", parameters.get(SonarPluginResource.PARAMETER_PROJECT), id, e);
+		} finally {
+			// A refresh requested during this one is executed right after
+			subscription.next = subscription.requested ? 0 : System.currentTimeMillis() + jitter(subscription.interval);
+			subscription.running = false;
+		}
+	}
+
+	/**
+	 * Request the refresh of the subscriptions matching the given predicate, without waiting for their refresh date.
+	 *
+	 * @param predicate The predicate of the subscription parameters and of the last project snapshot, when available.
+	 * @return The count of subscriptions to refresh.
+	 */
+	public int refreshIf(final BiPredicate<Map<String, String>, SonarProject> predicate) {
+		final var count = new AtomicInteger();
+		subscriptions.values().forEach(subscription -> {
+			final var snapshot = subscription.snapshot;
+			if (predicate.test(subscription.parameters, snapshot == null ? null : snapshot.project())) {
+				subscription.requested = true;
+				subscription.next = 0;
+				count.incrementAndGet();
+			}
+		});
+		return count.get();
+	}
+
+	/**
+	 * Evict the subscriptions matching the given predicate.
+	 *
+	 * @param predicate The subscription parameters predicate.
+	 */
+	public void evictIf(final Predicate<Map<String, String>> predicate) {
+		subscriptions.values().removeIf(s -> predicate.test(s.parameters));
+	}
+
+	/**
+	 * Stop the refreshes.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+		subscriptions.clear();
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A SonarQube project with its normalized name and key, as used by the searches.
+ */
+@Getter
+@AllArgsConstructor
+public class SonarSearchEntry {
+
+	/**
+	 * The SonarQube project.
+	 */
+	private final SonarProject project;
+
+	/**
+	 * The normalized name.
+	 */
+	private final String name;
+
+	/**
+	 * The normalized key.
+	 */
+	private final String key;
+
+	/**
+	 * Indicates this project matches to the given criteria.
+	 *
+	 * @param criteria The normalized criteria.
+	 * @return <code>true</code> when the normalized name or key contains the criteria.
+	 */
+	public boolean matches(final String criteria) {
+		return name.contains(criteria) || key.contains(criteria);
+	}
+
+	/**
+	 * Return the relevance of this project for the given criteria, the lowest the best: exact match, then name prefix,
+	 * then key prefix, then name containing the criteria, then key containing the criteria.
+	 *
+	 * @param criteria The normalized criteria.
+	 * @return The relevance, from <code>0</code> to <code>4</code>. <code>5</code> when this project does not match.
+	 */
+	public int rank(final String criteria) {
+		if (name.equals(criteria) || key.equals(criteria)) {
+			return 0;
+		}
+		if (name.startsWith(criteria)) {
+			return 1;
+		}
+		if (key.startsWith(criteria)) {
+			return 2;
+		}
+		if (name.contains(criteria)) {
+			return 3;
+		}
+		return key.contains(criteria) ? 4 : 5;
+	}
+}
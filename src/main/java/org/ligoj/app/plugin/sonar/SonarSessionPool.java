@@ -0,0 +1,171 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.ligoj.bootstrap.core.curl.CurlProcessor;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Pool of authenticated {@link SonarCurlProcessor}, by node URL and credentials. A {@link SonarCurlProcessor} is
+ * stateful, so each processor is leased to a single call at a time, then given back to the pool: the next calls to the
+ * same node reuse its session and its connections. A processor is closed once its lifetime is reached or its node is
+ * evicted, as soon as its current call is completed.
+ */
+public class SonarSessionPool implements AutoCloseable {
+
+	/**
+	 * Pool key: node URL and raw credentials, the same for all calls whatever the known version of the node.
+	 */
+	private record Key(String url, String user, String password) {
+	}
+
+	/**
+	 * A processor with its resolved credentials, depending on the version of the node.
+	 */
+	private record Session(CurlProcessor processor, String user, String password, long expire) {
+	}
+
+	/**
+	 * The idle processors of a key.
+	 */
+	private static class Pool {
+		private final Deque<Session> idle = new ArrayDeque<>();
+		private int leased;
+		private boolean retired;
+
+		/**
+		 * Lease an idle processor authenticated with the given credentials, after closing the expired ones. When
+		 * <code>null</code>, the caller leases a new processor.
+		 */
+		private synchronized Session poll(final String user, final String password, final long now) {
+			closeExpired(now);
+			leased++;
+			final var iterator = idle.iterator();
+			while (iterator.hasNext()) {
+				final var session = iterator.next();
+				if (Objects.equals(session.user(), user) && Objects.equals(session.password(), password)) {
+					iterator.remove();
+					return session;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Give back a processor. Returns <code>false</code> when it has to be closed.
+		 */
+		private synchronized boolean offer(final Session session, final long now) {
+			leased--;
+			if (retired || session.expire() <= now) {
+				return false;
+			}
+			idle.push(session);
+			return true;
+		}
+
+		private synchronized void closeExpired(final long now) {
+			idle.removeIf(s -> {
+				if (s.expire() <= now) {
+					s.processor().close();
+					return true;
+				}
+				return false;
+			});
+		}
+
+		/**
+		 * Retire this pool when it has no more processor after closing the expired ones.
+		 */
+		private synchronized boolean retireIfEmpty(final long now) {
+			closeExpired(now);
+			retired = idle.isEmpty() && leased == 0;
+			return retired;
+		}
+
+		/**
+		 * Retire this pool and close its idle processors. The leased ones are closed when given back.
+		 */
+		private void retire() {
+			final List<Session> sessions;
+			synchronized (this) {
+				retired = true;
+				sessions = new ArrayList<>(idle);
+				idle.clear();
+			}
+			sessions.forEach(s -> s.processor().close());
+		}
+	}
+
+	private final Map<Key, Pool> pools = new ConcurrentHashMap<>();
+
+	/**
+	 * Execute a function with a leased processor of the given node.
+	 *
+	 * @param version    The remote SonarQube version. May be <code>null</code> when not yet known.
+	 * @param parameters The node parameters.
+	 * @param lifetime   The lifetime of a newly created processor.
+	 * @param function   The function using the processor.
+	 * @param <T>        The result type.
+	 * @return The function result.
+	 */
+	public <T> T execute(final String version, final Map<String, String> parameters, final Duration lifetime,
+			final Function<CurlProcessor, T> function) {
+		final var key = new Key(parameters.get(SonarPluginResource.PARAMETER_URL), parameters.get(SonarPluginResource.PARAMETER_USER),
+				parameters.get(SonarPluginResource.PARAMETER_PASSWORD));
+		final var user = SonarCurlProcessor.getBasicUser(version, parameters);
+		final var password = SonarCurlProcessor.getBasicPassword(version, parameters);
+		final var now = System.currentTimeMillis();
+		retireExpired(now);
+		final var pool = pools.computeIfAbsent(key, k -> new Pool());
+		final var session = Objects.requireNonNullElseGet(pool.poll(user, password, now),
+				() -> new Session(new SonarCurlProcessor(version, parameters), user, password, now + lifetime.toMillis()));
+		try {
+			return function.apply(session.processor());
+		} finally {
+			if (!pool.offer(session, System.currentTimeMillis())) {
+				session.processor().close();
+			}
+		}
+	}
+
+	/**
+	 * Close the idle processors having reached their lifetime, and drop the pools without processor.
+	 */
+	private void retireExpired(final long now) {
+		pools.entrySet().removeIf(e -> e.getValue().retireIfEmpty(now));
+	}
+
+	/**
+	 * Retire the processors of the given node URL.
+	 *
+	 * @param url The node URL.
+	 */
+	public void evict(final String url) {
+		pools.entrySet().removeIf(e -> {
+			if (Objects.equals(e.getKey().url(), url)) {
+				e.getValue().retire();
+				return true;
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Retire all processors.
+	 */
+	@Override
+	public void close() {
+		pools.values().forEach(Pool::retire);
+		pools.clear();
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce the concurrent identical calls: while a call is in flight, the callers with the same key wait for its
+ * result instead of executing their own call. Nothing is kept once the call is completed.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class SonarSingleFlight<K, V> {
+
+	private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+	/**
+	 * Execute the given call, or wait for the result of the same call in flight.
+	 *
+	 * @param key  The call key.
+	 * @param call The call to execute when none is in flight. May return <code>null</code>.
+	 * @return The result, shared by all the concurrent callers.
+	 */
+	public V execute(final K key, final Supplier<V> call) {
+		final var future = new CompletableFuture<V>();
+		final var inFlight = calls.putIfAbsent(key, future);
+		if (inFlight != null) {
+			// Another caller is executing the same call
+			return join(inFlight);
+		}
+		try {
+			final var result = call.get();
+			future.complete(result);
+			return result;
+		} catch (final RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, future);
+		}
+	}
+
+	private V join(final CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the count of calls in flight.
+	 *
+	 * @return The count of calls in flight.
+	 */
+	public int size() {
+		return calls.size();
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded measures of a project or a branch over a period, in columns.
+ */
+@Getter
+@Setter
+public class SonarTrend {
+
+	/**
+	 * The branch name. Empty for the project itself.
+	 */
+	private String branch;
+
+	/**
+	 * The dates of the points, in milliseconds.
+	 */
+	private List<Long> dates;
+
+	/**
+	 * The values of each metric, in the dates order. A value is <code>null</code> when the metric was not recorded at
+	 * this date.
+	 */
+	private Map<String, List<Double>> values;
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import lombok.Getter;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+
+/**
+ * SonarQube server version, parsed once.
+ */
+@Getter
+public class SonarVersion {
+
+	private static final DefaultArtifactVersion VERSION_63 = new DefaultArtifactVersion("6.3.0");
+	private static final DefaultArtifactVersion VERSION_66 = new DefaultArtifactVersion("6.6.0");
+
+	/**
+	 * The raw version as returned by SonarQube. May be <code>null</code> when unknown.
+	 */
+	private final String raw;
+
+	/**
+	 * The parsed version. <code>null</code> when unknown.
+	 */
+	private final DefaultArtifactVersion version;
+
+	/**
+	 * Constructor from the raw version.
+	 *
+	 * @param raw The raw version as returned by SonarQube. May be <code>null</code>.
+	 */
+	public SonarVersion(final String raw) {
+		this.raw = raw;
+		this.version = raw == null ? null : new DefaultArtifactVersion(raw);
+	}
+
+	private boolean isAtLeast(final DefaultArtifactVersion other) {
+		return version != null && version.compareTo(other) >= 0;
+	}
+
+	/**
+	 * Indicates the <code>api/measures</code> and <code>api/projects</code> are available.
+	 *
+	 * @return <code>true</code> for SonarQube 6.3+.
+	 */
+	public boolean is63API() {
+		return isAtLeast(VERSION_63);
+	}
+
+	/**
+	 * Indicates the <code>api/project_branches</code> is available.
+	 *
+	 * @return <code>true</code> for SonarQube 6.6+.
+	 */
+	public boolean is66API() {
+		return isAtLeast(VERSION_66);
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * SonarQube webhook payload, sent when a project analysis is completed.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SonarWebhook {
+
+	/**
+	 * Status of the analysis task: <code>SUCCESS</code> or <code>FAILED</code>.
+	 */
+	private String status;
+
+	/**
+	 * Analysis date.
+	 */
+	private String analysedAt;
+
+	/**
+	 * Analyzed project. Only the key and the name are provided.
+	 */
+	private SonarProject project;
+
+	/**
+	 * Analyzed branch or pull request. Only provided by SonarQube 7.1+.
+	 */
+	private SonarBranch branch;
+
+	/**
+	 * Quality gate result, with its <code>status</code>.
+	 */
+	private Map<String, Object> qualityGate;
+}
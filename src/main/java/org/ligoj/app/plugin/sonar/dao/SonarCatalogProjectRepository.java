@@ -0,0 +1,59 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar.dao;
+
+import org.ligoj.app.plugin.sonar.model.SonarCatalogProject;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link SonarCatalogProject} repository
+ */
+public interface SonarCatalogProjectRepository extends RestRepository<SonarCatalogProject, Integer> {
+
+	/**
+	 * Return the catalog projects of a node.
+	 *
+	 * @param node The node identifier.
+	 * @return The catalog projects.
+	 */
+	@Query("FROM SonarCatalogProject WHERE node.id = :node")
+	List<SonarCatalogProject> findAllByNode(@Param("node") String node);
+
+	/**
+	 * Return the catalog projects of a node with the given keys.
+	 *
+	 * @param node The node identifier.
+	 * @param keys The project keys.
+	 * @return The catalog projects.
+	 */
+	@Query("FROM SonarCatalogProject WHERE node.id = :node AND projectKey IN :keys")
+	List<SonarCatalogProject> findAllByNode(@Param("node") String node, @Param("keys") Collection<String> keys);
+
+	/**
+	 * Delete the catalog projects of a node.
+	 *
+	 * @param node The node identifier.
+	 * @return The deleted projects count.
+	 */
+	@Query("DELETE FROM SonarCatalogProject WHERE node.id = :node")
+	@Modifying
+	int deleteAllByNode(@Param("node") String node);
+
+	/**
+	 * Delete the catalog projects of a node with the given keys.
+	 *
+	 * @param node The node identifier.
+	 * @param keys The project keys.
+	 * @return The deleted projects count.
+	 */
+	@Query("DELETE FROM SonarCatalogProject WHERE node.id = :node AND projectKey IN :keys")
+	@Modifying
+	int deleteAllByNode(@Param("node") String node, @Param("keys") Collection<String> keys);
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar.dao;
+
+import org.ligoj.app.plugin.sonar.model.SonarHistoryResolution;
+import org.ligoj.app.plugin.sonar.model.SonarMeasureHistory;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * {@link SonarMeasureHistory} repository
+ */
+public interface SonarMeasureHistoryRepository extends RestRepository<SonarMeasureHistory, Integer> {
+
+	/**
+	 * Return the last block of a series.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The branch name. Empty for the project.
+	 * @param resolution   The resolution.
+	 * @return The last block, or <code>null</code>.
+	 */
+	SonarMeasureHistory findFirstBySubscriptionIdAndBranchAndResolutionOrderByLastPointDesc(int subscription, String branch,
+			SonarHistoryResolution resolution);
+
+	/**
+	 * Return the blocks of a series with the given resolution, started before the given date.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The branch name. Empty for the project.
+	 * @param resolution   The resolution.
+	 * @param before       The exclusive maximal start date.
+	 * @return The blocks, ordered by date.
+	 */
+	@Query("FROM SonarMeasureHistory WHERE subscription.id = :subscription AND branch = :branch AND resolution = :resolution"
+			+ " AND periodStart < :before ORDER BY lastPoint")
+	List<SonarMeasureHistory> findAllBefore(@Param("subscription") int subscription, @Param("branch") String branch,
+			@Param("resolution") SonarHistoryResolution resolution, @Param("before") Instant before);
+
+	/**
+	 * Return the blocks of a series overlapping the given range, all resolutions included.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param branch       The branch name. Empty for the project.
+	 * @param from         The inclusive start of the range.
+	 * @param to           The inclusive end of the range.
+	 * @return The blocks, ordered by date.
+	 */
+	@Query("FROM SonarMeasureHistory WHERE subscription.id = :subscription AND branch = :branch AND lastPoint >= :from AND periodStart <= :to"
+			+ " ORDER BY lastPoint")
+	List<SonarMeasureHistory> findAllInRange(@Param("subscription") int subscription, @Param("branch") String branch, @Param("from") Instant from,
+			@Param("to") Instant to);
+
+	/**
+	 * Delete the blocks of a subscription ended before the given date.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param before       The exclusive maximal date of the last point.
+	 * @return The deleted blocks count.
+	 */
+	@Query("DELETE FROM SonarMeasureHistory WHERE subscription.id = :subscription AND lastPoint < :before")
+	@Modifying
+	int deleteAllBefore(@Param("subscription") int subscription, @Param("before") Instant before);
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.ligoj.app.model.Node;
+import org.ligoj.bootstrap.core.model.AbstractPersistable;
+
+/**
+ * A project of the persisted catalog of a node, so the catalog survives to a restart without a full synchronization.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "LIGOJ_SONAR_CATALOG")
+public class SonarCatalogProject extends AbstractPersistable<Integer> {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The node of the project.
+	 */
+	@NotNull
+	@ManyToOne
+	@JsonIgnore
+	private Node node;
+
+	/**
+	 * The project key.
+	 */
+	@NotNull
+	@Column(length = 400)
+	private String projectKey;
+
+	/**
+	 * The project identifier, as returned by the API. Differs from the key for the API before 6.3.
+	 */
+	@Column(length = 400)
+	private String projectId;
+
+	/**
+	 * The project name.
+	 */
+	@Column(length = 500)
+	private String name;
+
+	/**
+	 * The project description.
+	 */
+	@Column(length = 2000)
+	private String description;
+
+	/**
+	 * The date of the last analysis, as returned by the API. <code>null</code> when the project is only provisioned.
+	 */
+	private String lastAnalysisDate;
+}
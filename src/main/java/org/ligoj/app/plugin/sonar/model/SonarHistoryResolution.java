@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Resolution of the recorded measures.
+ */
+@AllArgsConstructor
+@Getter
+public enum SonarHistoryResolution {
+
+	/**
+	 * Every recorded point, stored in one block per day.
+	 */
+	RAW(ChronoUnit.DAYS),
+
+	/**
+	 * Last point of each day, stored in one block per month.
+	 */
+	DAY(ChronoUnit.MONTHS);
+
+	/**
+	 * Period covered by a block.
+	 */
+	private final ChronoUnit period;
+
+	/**
+	 * Return the start of the block period containing the given date.
+	 *
+	 * @param date The date.
+	 * @return The start of the period, in UTC.
+	 */
+	public Instant getPeriodStart(final Instant date) {
+		final var day = date.atZone(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS);
+		return (period == ChronoUnit.MONTHS ? day.with(TemporalAdjusters.firstDayOfMonth()) : day).toInstant();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.bootstrap.core.model.AbstractPersistable;
+
+import java.time.Instant;
+
+/**
+ * A block of recorded measures of a subscribed project or one of its branches. The points of a block share the same
+ * metrics, and are stored in a compact columnar form: the dates, then the values of each metric, each column being
+ * delta encoded.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "LIGOJ_SONAR_MEASURE_HISTORY")
+public class SonarMeasureHistory extends AbstractPersistable<Integer> {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximum length of the metric keys.
+	 */
+	public static final int METRICS_LENGTH = 1024;
+
+	/**
+	 * The subscription of the project.
+	 */
+	@NotNull
+	@ManyToOne
+	@JsonIgnore
+	private Subscription subscription;
+
+	/**
+	 * The branch name. Empty for the project itself.
+	 */
+	@NotNull
+	private String branch;
+
+	/**
+	 * The resolution of the points.
+	 */
+	@NotNull
+	@Enumerated(EnumType.STRING)
+	private SonarHistoryResolution resolution;
+
+	/**
+	 * The start of the period covered by this block.
+	 */
+	@NotNull
+	private Instant periodStart;
+
+	/**
+	 * The date of the last point.
+	 */
+	@NotNull
+	private Instant lastPoint;
+
+	/**
+	 * The points count.
+	 */
+	private int size;
+
+	/**
+	 * The metric keys of the columns, comma separated.
+	 */
+	@NotNull
+	@Column(length = METRICS_LENGTH)
+	private String metrics;
+
+	/**
+	 * The encoded columns.
+	 */
+	@NotNull
+	@Lob
+	private byte[] data;
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class of {@link SonarBranchPermits}
+ */
+class SonarBranchPermitsTest {
+
+	@Test
+	void wrap() throws Exception {
+		final var permits = new SonarBranchPermits(2);
+		Assertions.assertEquals(2, permits.getSize());
+		final var task = permits.wrap(() -> permits.getAvailable() == 1);
+		Assertions.assertTrue(task.call());
+		Assertions.assertEquals(2, permits.getAvailable());
+
+		// Released only once
+		task.release();
+		Assertions.assertEquals(2, permits.getAvailable());
+	}
+
+	@Test
+	void wrapMin() {
+		Assertions.assertEquals(1, new SonarBranchPermits(0).getSize());
+	}
+
+	@Test
+	void cancelled() throws Exception {
+		final var permits = new SonarBranchPermits(1);
+		final var started = new CountDownLatch(1);
+		final var blocked = new CountDownLatch(1);
+		final var task = permits.wrap(() -> {
+			started.countDown();
+
+			// A request ignoring the interruption
+			var done = false;
+			while (!done) {
+				try {
+					done = blocked.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					// Still blocked
+				}
+			}
+			return true;
+		});
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var futures = executor.invokeAll(List.of(task, permits.wrap(() -> true)), 200, TimeUnit.MILLISECONDS);
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			Assertions.assertTrue(futures.getFirst().isCancelled());
+			Assertions.assertEquals(0, permits.getAvailable());
+
+			// The permit is given back to the next tasks without waiting for the blocked one
+			task.release();
+			Assertions.assertEquals(1, permits.getAvailable());
+			Assertions.assertTrue(executor.submit(permits.wrap(() -> true)).get(5, TimeUnit.SECONDS));
+			blocked.countDown();
+		}
+		Assertions.assertEquals(1, permits.getAvailable());
+	}
+}
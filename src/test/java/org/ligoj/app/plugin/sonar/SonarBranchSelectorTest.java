@@ -0,0 +1,75 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Test class of {@link SonarBranchSelector}
+ */
+class SonarBranchSelectorTest {
+
+	private static SonarBranch newBranch(final String name, final String type, final String date) {
+		final var branch = new SonarBranch();
+		branch.setName(name);
+		branch.setType(type);
+		branch.setAnalysisDate(date);
+		branch.setMain("main".equals(name));
+		return branch;
+	}
+
+	private static List<String> select(final int limit, final List<String> types, final SonarBranch... branches) {
+		final var selector = new SonarBranchSelector(limit, types);
+		for (final var branch : branches) {
+			Assertions.assertTrue(selector.offer(branch));
+		}
+		return selector.getBranches().stream().map(SonarBranch::getName).toList();
+	}
+
+	@Test
+	void getBranches() {
+		final var branches = new SonarBranch[]{newBranch("pr/1", "PULL_REQUEST", "2023-08-08T16:12:31+0000"),
+				newBranch("old", "BRANCH", "2023-08-08T15:12:31+0000"), newBranch("main", "BRANCH", "2023-08-01T10:11:18+0000"),
+				newBranch("recent", "BRANCH", "2023-08-08T17:12:31+0000"), newBranch("none", "BRANCH", null)};
+		Assertions.assertEquals(List.of("main", "recent", "pr/1", "old", "none"), select(10, List.of(), branches));
+		Assertions.assertEquals(List.of("main", "recent", "pr/1"), select(3, List.of(), branches));
+		Assertions.assertEquals(List.of("main"), select(1, List.of(), branches));
+		Assertions.assertEquals(List.of(), select(0, List.of(), branches));
+	}
+
+	@Test
+	void getBranchesTypes() {
+		final var branches = new SonarBranch[]{newBranch("pr/1", "PULL_REQUEST", "2023-08-08T16:12:31+0000"),
+				newBranch("main", "BRANCH", "2023-08-01T10:11:18+0000"), newBranch("old", "BRANCH", "2023-08-08T15:12:31+0000")};
+		Assertions.assertEquals(List.of("main", "old"), select(3, List.of("BRANCH"), branches));
+
+		// The main branch is always selected
+		Assertions.assertEquals(List.of("main", "pr/1"), select(3, List.of("PULL_REQUEST"), branches));
+	}
+
+	@Test
+	void getBranchesTimeZone() {
+		// Compared as instants, not as strings
+		Assertions.assertEquals(List.of("utc", "paris"), select(2, List.of(), newBranch("paris", "BRANCH", "2023-08-08T17:00:00+0200"),
+				newBranch("utc", "BRANCH", "2023-08-08T16:00:00+0000")));
+	}
+
+	@Test
+	void getBranchesSameDate() {
+		// The streamed order is kept
+		final var date = "2023-08-08T16:12:31+0000";
+		Assertions.assertEquals(List.of("b1", "b2"), select(2, List.of(), newBranch("b1", "BRANCH", date), newBranch("b2", "BRANCH", date),
+				newBranch("b3", "BRANCH", date)));
+	}
+
+	@Test
+	void toTime() {
+		Assertions.assertEquals(1691511151000L, SonarBranchSelector.toTime("2023-08-08T16:12:31+0000"));
+		Assertions.assertEquals(Long.MIN_VALUE, SonarBranchSelector.toTime(null));
+		Assertions.assertEquals(Long.MIN_VALUE, SonarBranchSelector.toTime("2023-08-08"));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class of {@link SonarCatalog}
+ */
+class SonarCatalogTest {
+
+	private final SonarCatalog catalog = new SonarCatalog();
+
+	private static SonarProject newProject(final String key, final String name, final String date) {
+		final var project = new SonarProject();
+		project.setKey(key);
+		project.setName(name);
+		project.setLastAnalysisDate(date);
+		project.setMeasuresAsMap(Map.of("ncloc", 1));
+		return project;
+	}
+
+	@Test
+	void put() {
+		Assertions.assertTrue(catalog.put(newProject("fr.company:project", "Company - Project", "2023-08-08T16:12:31+0000")));
+		Assertions.assertFalse(catalog.put(newProject("fr.company:project", "Company - Project", "2023-08-08T16:12:31+0000")));
+		Assertions.assertTrue(catalog.put(newProject("fr.company:project", "Company - Project", "2023-08-09T16:12:31+0000")));
+		Assertions.assertTrue(catalog.put(newProject("fr.company:project", "Company - Renamed", "2023-08-09T16:12:31+0000")));
+		Assertions.assertEquals(1, catalog.size());
+
+		// Only the catalog properties are kept
+		final var project = catalog.get("fr.company:project");
+		Assertions.assertEquals("Company - Renamed", project.getName());
+		Assertions.assertEquals("fr.company:project", project.getId());
+		Assertions.assertNull(project.getMeasuresAsMap());
+	}
+
+	@Test
+	void putAnalyzed() {
+		catalog.put(newProject("fr.company:project", "Company - Project", "2023-08-08T16:12:31+0000"));
+		final var project = catalog.get("fr.company:project");
+
+		// Same name and key: updated in place, without reindexing
+		Assertions.assertTrue(catalog.put(newProject("fr.company:project", "Company - Project", "2023-08-09T16:12:31+0000")));
+		Assertions.assertSame(project, catalog.get("fr.company:project"));
+		Assertions.assertEquals("2023-08-09T16:12:31+0000", project.getLastAnalysisDate());
+		Assertions.assertEquals(1691597551000L, catalog.getWatermark());
+		Assertions.assertSame(project, catalog.search("PROJECT", 10).getFirst());
+	}
+
+	@Test
+	void remove() {
+		catalog.put(newProject("fr.company:project", "Company - Project", null));
+		catalog.put(newProject("fr.company:other", "Company - Other", null));
+		catalog.remove("fr.company:project");
+		catalog.remove("any");
+		Assertions.assertEquals(List.of("fr.company:other"), catalog.getProjects().stream().map(SonarProject::getKey).toList());
+		Assertions.assertEquals(Set.of("fr.company:other"), catalog.getKeys());
+		Assertions.assertNull(catalog.get("fr.company:project"));
+		Assertions.assertEquals(List.of("fr.company:other"), catalog.search("COMPANY", 10).stream().map(SonarProject::getKey).toList());
+	}
+
+	@Test
+	void getWatermark() {
+		Assertions.assertEquals(Long.MIN_VALUE, catalog.getWatermark());
+		catalog.put(newProject("fr.company:provisioned", "Provisioned", null));
+		Assertions.assertEquals(Long.MIN_VALUE, catalog.getWatermark());
+		catalog.put(newProject("fr.company:recent", "Recent", "2023-08-08T16:12:31+0000"));
+		catalog.put(newProject("fr.company:old", "Old", "2023-08-01T16:12:31+0000"));
+		Assertions.assertEquals(1691511151000L, catalog.getWatermark());
+	}
+
+	@Test
+	void search() {
+		catalog.put(newProject("fr.company:project", "Company - Project", null));
+		catalog.put(newProject("fr.other:project", "Project", null));
+		catalog.put(newProject("org.ligoj:web", "Ligoj - Web", null));
+		Assertions.assertEquals(List.of("fr.other:project", "fr.company:project"),
+				catalog.search("PROJECT", 10).stream().map(SonarProject::getKey).toList());
+		Assertions.assertEquals(1, catalog.search("PROJECT", 1).size());
+		Assertions.assertTrue(catalog.search("NONE", 10).isEmpty());
+	}
+
+	@Test
+	void synchronizedAt() {
+		Assertions.assertEquals(0, catalog.getSynchronizedAt());
+		Assertions.assertEquals(0, catalog.getFullSynchronizedAt());
+		catalog.setSynchronizedAt(1);
+		catalog.setFullSynchronizedAt(2);
+		Assertions.assertEquals(1, catalog.getSynchronizedAt());
+		Assertions.assertEquals(2, catalog.getFullSynchronizedAt());
+	}
+
+	@Test
+	void synchronize() throws Exception {
+		final var count = new AtomicInteger();
+		final var release = new CompletableFuture<Void>();
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var running = catalog.synchronize(() -> {
+				count.incrementAndGet();
+				release.join();
+			}, executor);
+
+			// Running synchronization, the catalog is still readable
+			Assertions.assertSame(running, catalog.synchronize(count::incrementAndGet, executor));
+			Assertions.assertEquals(0, catalog.size());
+			release.complete(null);
+			running.get();
+
+			// A new one once completed, run by the caller
+			Assertions.assertTrue(catalog.synchronize(count::incrementAndGet, Runnable::run).isDone());
+			Assertions.assertEquals(2, count.get());
+		}
+	}
+
+	@Test
+	void synchronizeFailed() {
+		final var failed = catalog.synchronize(() -> {
+			throw new IllegalStateException();
+		}, Runnable::run);
+		Assertions.assertInstanceOf(IllegalStateException.class, Assertions.assertThrows(ExecutionException.class, failed::get).getCause());
+
+		// Not blocking the next synchronizations
+		Assertions.assertFalse(catalog.synchronize(() -> {
+		}, Runnable::run).isCompletedExceptionally());
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class of {@link SonarCircuitBreaker}
+ */
+class SonarCircuitBreakerTest {
+
+	private static final String URL = "http://localhost:8120";
+
+	/**
+	 * Current time in milliseconds, moved forward by the tests.
+	 */
+	private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+
+	private final SonarCircuitBreaker breaker = new SonarCircuitBreaker(3, Duration.ofMillis(200), Duration.ofSeconds(1), 4, Duration.ofMillis(100),
+			now::get);
+
+	private boolean call(final int status) {
+		return breaker.execute(URL, () -> status >= 200 && status < 300, () -> status);
+	}
+
+	@Test
+	void execute() {
+		Assertions.assertTrue(call(200));
+		Assertions.assertFalse(call(404));
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+		Assertions.assertEquals(4, breaker.getLimit(URL));
+	}
+
+	@Test
+	void open() {
+		Assertions.assertFalse(call(503));
+		Assertions.assertFalse(call(0));
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+		Assertions.assertFalse(call(429));
+		Assertions.assertEquals(SonarCircuitBreaker.State.OPEN, breaker.getState(URL));
+
+		// Rejected without call
+		final var e = Assertions.assertThrows(ServiceUnavailableException.class, () -> breaker.execute(URL, () -> {
+			throw new IllegalStateException("Not expected");
+		}, () -> 0));
+		Assertions.assertEquals("1", e.getResponse().getHeaderString("Retry-After"));
+
+		// The other nodes are not affected
+		Assertions.assertTrue(breaker.execute("http://other", () -> true, () -> 200));
+
+		// The probe fails, the circuit is open again
+		now.addAndGet(250);
+		Assertions.assertFalse(call(503));
+		Assertions.assertEquals(SonarCircuitBreaker.State.OPEN, breaker.getState(URL));
+		Assertions.assertThrows(ServiceUnavailableException.class, () -> call(200));
+
+		// The probe succeeds, the circuit is closed
+		now.addAndGet(250);
+		Assertions.assertTrue(call(200));
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+		Assertions.assertTrue(call(200));
+	}
+
+	@Test
+	void halfOpen() throws Exception {
+		call(503);
+		call(503);
+		call(503);
+		now.addAndGet(250);
+		final var probing = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var probe = executor.submit(() -> breaker.execute(URL, () -> {
+				probing.countDown();
+				await(release);
+				return true;
+			}, () -> 200));
+			Assertions.assertTrue(probing.await(5, TimeUnit.SECONDS));
+			Assertions.assertEquals(SonarCircuitBreaker.State.HALF_OPEN, breaker.getState(URL));
+
+			// Only one probe at a time, the other calls wait for its result
+			Assertions.assertThrows(ServiceUnavailableException.class, () -> call(200));
+			final var waiting = executor.submit(() -> call(200));
+			release.countDown();
+			Assertions.assertTrue(probe.get(5, TimeUnit.SECONDS));
+			Assertions.assertTrue(waiting.get(5, TimeUnit.SECONDS));
+		}
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+	}
+
+	@Test
+	void limit() throws Exception {
+		// Overload signals shrink the limit
+		call(503);
+		Assertions.assertEquals(2, breaker.getLimit(URL));
+		call(503);
+		Assertions.assertEquals(1, breaker.getLimit(URL));
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+
+		// The limit is enforced, the call waiting for a permit is rejected after the timeout
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var call = executor.submit(() -> breaker.execute(URL, () -> {
+				started.countDown();
+				await(release);
+				return true;
+			}, () -> 200));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			Assertions.assertThrows(ServiceUnavailableException.class, () -> call(200));
+			release.countDown();
+			Assertions.assertTrue(call.get(5, TimeUnit.SECONDS));
+		}
+
+		// Fast responses slowly grow the limit
+		for (var i = 0; i < 10; i++) {
+			call(200);
+		}
+		Assertions.assertEquals(4, breaker.getLimit(URL));
+	}
+
+	@Test
+	void limitQueued() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		final var queued = new SonarCircuitBreaker(3, Duration.ofMillis(200), Duration.ofSeconds(1), 4, Duration.ofSeconds(5), now::get);
+		queued.execute(URL, () -> false, () -> 503);
+		queued.execute(URL, () -> false, () -> 503);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var call = executor.submit(() -> queued.execute(URL, () -> {
+				started.countDown();
+				await(release);
+				return true;
+			}, () -> 200));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			// Beyond the limit, the call waits for the permit
+			final var waiting = executor.submit(() -> queued.execute(URL, () -> true, () -> 200));
+			release.countDown();
+			Assertions.assertTrue(call.get(5, TimeUnit.SECONDS));
+			Assertions.assertTrue(waiting.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void limitLatency() {
+		final var slow = new SonarCircuitBreaker(3, Duration.ofMillis(200), Duration.ofMillis(5), 12, Duration.ofMillis(100), now::get);
+		slow.execute(URL, () -> now.addAndGet(10) > 0, () -> 200);
+		Assertions.assertEquals(10, slow.getLimit(URL));
+
+		// The slow responses do not shrink the limit below a quarter of the maximum
+		for (var i = 0; i < 20; i++) {
+			slow.execute(URL, () -> now.addAndGet(10) > 0, () -> 200);
+		}
+		Assertions.assertEquals(3, slow.getLimit(URL));
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, slow.getState(URL));
+	}
+
+	@Test
+	void evict() {
+		call(503);
+		call(503);
+		call(503);
+		breaker.evict(URL);
+		Assertions.assertEquals(SonarCircuitBreaker.State.CLOSED, breaker.getState(URL));
+		Assertions.assertTrue(call(200));
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
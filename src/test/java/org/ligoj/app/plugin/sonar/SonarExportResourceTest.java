@@ -0,0 +1,214 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.transaction.Transactional;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.model.*;
+import org.ligoj.app.plugin.qa.QaResource;
+import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import tools.jackson.databind.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * Test class of {@link SonarExportResource}
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+@Rollback
+@Transactional
+class SonarExportResourceTest extends AbstractServerTest {
+
+	@Autowired
+	private SonarExportResource resource;
+
+	@Autowired
+	private SonarPluginResource pluginResource;
+
+	private int subscription;
+
+	@BeforeEach
+	void prepareData() throws IOException {
+		// Only with Spring context
+		persistEntities("csv", new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
+				StandardCharsets.UTF_8);
+		this.subscription = getSubscription("Jupiter", QaResource.SERVICE_KEY);
+		pluginResource.evictCache("service:qa:sonarqube:bpr");
+		httpServer.stubFor(get(urlEqualTo("/api/server/version")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils
+				.toString(new ClassPathResource("mock-server/sonar/sonar-server-version-6.6.txt").getInputStream(), StandardCharsets.UTF_8))));
+	}
+
+	/**
+	 * Return the creation date of the issue at the given index: 100 issues by date.
+	 */
+	private static String toDate(final int index) {
+		return String.format("2023-08-08T%02d:%02d:00+0000", index / 6000, index / 100 % 60);
+	}
+
+	/**
+	 * Return a search page of the given items.
+	 */
+	private static String toPage(final String property, final int from, final int to) {
+		return toPage(property, from, to, null);
+	}
+
+	/**
+	 * Return a search page of the given items, created at the given date, or at {@link #toDate(int)} when
+	 * <code>null</code>.
+	 */
+	private static String toPage(final String property, final int from, final int to, final String date) {
+		return "{\"paging\":{\"total\":" + (to - from) + "},\"" + property + "\":[" + IntStream.range(from, to)
+				.mapToObj(i -> "{\"key\":\"" + property + "-" + i + "\",\"creationDate\":\"" + (date == null ? toDate(i) : date) + "\"}")
+				.collect(Collectors.joining(",")) + "]}";
+	}
+
+	private void mockIssues(final String createdAfter, final int page, final int from, final int to) {
+		mockIssues(createdAfter, page, toPage("issues", from, to));
+	}
+
+	private void mockIssues(final String createdAfter, final int page, final String body) {
+		httpServer.stubFor(get(urlPathEqualTo("/api/issues/search")).withQueryParam("componentKeys", equalTo("123456"))
+				.withQueryParam("s", equalTo("CREATION_DATE")).withQueryParam("p", equalTo(String.valueOf(page)))
+				.withQueryParam("createdAfter", createdAfter == null ? absent() : equalTo(createdAfter))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(body)));
+	}
+
+	private List<JsonNode> toList(final String ndjson) {
+		final var mapper = new ObjectMapperTrim();
+		return Arrays.stream(ndjson.split("\n")).filter(l -> !l.isEmpty()).map(mapper::readTree).toList();
+	}
+
+	private String exportIssues(final String branch, final String pullRequest) throws IOException {
+		final var output = new ByteArrayOutputStream();
+		resource.getIssues(subscription, branch, pullRequest).write(output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	private String exportHotspots() throws IOException {
+		final var output = new ByteArrayOutputStream();
+		resource.getHotspots(subscription, null, null).write(output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void getIssues() throws IOException {
+		mockIssues(null, 1, 0, 3);
+		httpServer.start();
+
+		final var ndjson = exportIssues(null, null);
+		Assertions.assertTrue(ndjson.endsWith("}\n"));
+		final var issues = toList(ndjson);
+		Assertions.assertEquals(List.of("issues-0", "issues-1", "issues-2"), issues.stream().map(i -> i.path("key").asString()).toList());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/issues/search")));
+	}
+
+	@Test
+	void getIssuesBranch() throws IOException {
+		httpServer.stubFor(get(urlPathEqualTo("/api/issues/search")).withQueryParam("branch", equalTo("feature/1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toPage("issues", 0, 1))));
+		httpServer.stubFor(get(urlPathEqualTo("/api/issues/search")).withQueryParam("pullRequest", equalTo("42"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toPage("issues", 0, 2))));
+		httpServer.start();
+
+		Assertions.assertEquals(1, toList(exportIssues("feature/1", null)).size());
+		Assertions.assertEquals(2, toList(exportIssues("feature/1", "42")).size());
+	}
+
+	@Test
+	void getIssuesWindows() throws IOException {
+		// The first window is full, the second one starts at the last creation date of the first one
+		for (var page = 1; page <= 20; page++) {
+			mockIssues(null, page, (page - 1) * 500, page * 500);
+		}
+		mockIssues(toDate(9999), 1, 9900, 10400);
+		mockIssues(toDate(9999), 2, 10400, 10500);
+		httpServer.start();
+
+		final var keys = toList(exportIssues(null, null)).stream().map(i -> i.path("key").asString()).toList();
+		Assertions.assertEquals(10500, keys.size());
+		Assertions.assertEquals(10500, keys.stream().distinct().count());
+		Assertions.assertEquals("issues-10499", keys.getLast());
+		httpServer.verify(22, getRequestedFor(urlPathEqualTo("/api/issues/search")));
+	}
+
+	@Test
+	void getIssuesSameDate() throws IOException {
+		// More issues than the window at the same date: no progress
+		final var date = toDate(0);
+		for (var page = 1; page <= 20; page++) {
+			mockIssues(null, page, toPage("issues", (page - 1) * 500, page * 500, date));
+			mockIssues(date, page, toPage("issues", (page - 1) * 500, page * 500, date));
+		}
+		httpServer.start();
+
+		final var issues = toList(exportIssues(null, null));
+		Assertions.assertEquals(10001, issues.size());
+		Assertions.assertEquals(SonarExportResource.TRUNCATED_WINDOW, issues.getLast().path("reason").asString());
+		httpServer.verify(40, getRequestedFor(urlPathEqualTo("/api/issues/search")));
+	}
+
+	@Test
+	void getIssuesUnavailable() throws IOException {
+		httpServer.start();
+		Assertions.assertEquals("{\"truncated\":true,\"reason\":\"unavailable\"}\n", exportIssues(null, null));
+	}
+
+	@Test
+	void getIssuesIncomplete() throws IOException {
+		// The second page is missing
+		mockIssues(null, 1, 0, 500);
+		httpServer.start();
+
+		final var issues = toList(exportIssues(null, null));
+		Assertions.assertEquals(501, issues.size());
+		Assertions.assertEquals("issues-499", issues.get(499).path("key").asString());
+		Assertions.assertTrue(issues.getLast().path("truncated").asBoolean());
+		Assertions.assertEquals(SonarExportResource.TRUNCATED_UNAVAILABLE, issues.getLast().path("reason").asString());
+	}
+
+	@Test
+	void getHotspots() throws IOException {
+		httpServer.stubFor(get(urlPathEqualTo("/api/hotspots/search")).withQueryParam("projectKey", equalTo("123456"))
+				.withQueryParam("status", equalTo("TO_REVIEW")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toPage("hotspots", 0, 2))));
+		httpServer.stubFor(get(urlPathEqualTo("/api/hotspots/search")).withQueryParam("projectKey", equalTo("123456"))
+				.withQueryParam("status", equalTo("REVIEWED")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toPage("hotspots", 2, 3))));
+		httpServer.start();
+
+		final var hotspots = toList(exportHotspots());
+		Assertions.assertEquals(List.of("hotspots-0", "hotspots-1", "hotspots-2"), hotspots.stream().map(i -> i.path("key").asString()).toList());
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/hotspots/search")));
+	}
+
+	@Test
+	void getHotspotsUnavailable() throws IOException {
+		httpServer.stubFor(get(urlPathEqualTo("/api/hotspots/search")).withQueryParam("projectKey", equalTo("123456"))
+				.withQueryParam("status", equalTo("TO_REVIEW")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toPage("hotspots", 0, 2))));
+		httpServer.start();
+
+		// The reviewed hotspots are not available
+		final var hotspots = toList(exportHotspots());
+		Assertions.assertEquals(3, hotspots.size());
+		Assertions.assertEquals(SonarExportResource.TRUNCATED_UNAVAILABLE, hotspots.getLast().path("reason").asString());
+	}
+}
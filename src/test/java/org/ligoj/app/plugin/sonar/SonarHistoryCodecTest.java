@@ -0,0 +1,62 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class of {@link SonarHistoryCodec}
+ */
+class SonarHistoryCodecTest {
+
+	private static final List<String> METRICS = List.of("coverage", "ncloc");
+
+	@Test
+	void encodeDecode() {
+		final var points = List.of(new SonarHistoryCodec.Point(1691489478000L, Map.of("coverage", 85.5, "ncloc", 8644d)),
+				new SonarHistoryCodec.Point(1691489778000L, Map.of("coverage", 84.25, "ncloc", 8700d)),
+				new SonarHistoryCodec.Point(1691490078000L, Map.of("coverage", 90d, "ncloc", 8600d)));
+		final var decoded = SonarHistoryCodec.decode(METRICS, SonarHistoryCodec.encode(METRICS, points));
+		Assertions.assertEquals(points, decoded);
+	}
+
+	@Test
+	void encodeDecodeRounded() {
+		final var points = List.of(new SonarHistoryCodec.Point(1691489478123L, Map.of("coverage", 85.556, "ncloc", -1d)));
+		final var decoded = SonarHistoryCodec.decode(METRICS, SonarHistoryCodec.encode(METRICS, points)).getFirst();
+		Assertions.assertEquals(1691489478000L, decoded.date());
+		Assertions.assertEquals(Map.of("coverage", 85.56, "ncloc", -1d), decoded.measures());
+	}
+
+	@Test
+	void encodeMissing() {
+		final var points = List.of(new SonarHistoryCodec.Point(1691489478000L, Map.of("coverage", 85.5)));
+		Assertions.assertEquals(Map.of("coverage", 85.5, "ncloc", 0d),
+				SonarHistoryCodec.decode(METRICS, SonarHistoryCodec.encode(METRICS, points)).getFirst().measures());
+	}
+
+	@Test
+	void encodeEmpty() {
+		Assertions.assertTrue(SonarHistoryCodec.decode(METRICS, SonarHistoryCodec.encode(METRICS, List.of())).isEmpty());
+	}
+
+	@Test
+	void encodeCompact() {
+		// A day of unchanged measures every 5 minutes
+		final var points = new ArrayList<SonarHistoryCodec.Point>();
+		for (var i = 0; i < 288; i++) {
+			points.add(new SonarHistoryCodec.Point(1691489478000L + i * 300_000L, Map.of("coverage", 85.5, "ncloc", 8644d)));
+		}
+		final var data = SonarHistoryCodec.encode(METRICS, points);
+
+		// About 2 bytes per date, 1 byte per value
+		Assertions.assertTrue(data.length < 288 * 4 + 20, String.valueOf(data.length));
+		Assertions.assertEquals(points, SonarHistoryCodec.decode(METRICS, data));
+	}
+}
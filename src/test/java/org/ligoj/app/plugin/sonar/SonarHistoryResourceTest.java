@@ -0,0 +1,168 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.model.*;
+import org.ligoj.app.plugin.qa.QaResource;
+import org.ligoj.app.plugin.sonar.dao.SonarMeasureHistoryRepository;
+import org.ligoj.app.plugin.sonar.model.SonarHistoryResolution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class of {@link SonarHistoryResource}
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+@Rollback
+@Transactional
+class SonarHistoryResourceTest extends AbstractServerTest {
+
+	private static final long HOUR = 3600_000L;
+
+	private static final long DAY = 24 * HOUR;
+
+	private static final long DATE = Instant.parse("2024-01-01T10:00:00Z").toEpochMilli();
+
+	@Autowired
+	private SonarHistoryResource resource;
+
+	@Autowired
+	private SonarMeasureHistoryRepository repository;
+
+	private int subscription;
+
+	@BeforeEach
+	void prepareData() throws IOException {
+		// Only with Spring context
+		persistEntities("csv", new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
+				StandardCharsets.UTF_8);
+		this.subscription = getSubscription("Jupiter", QaResource.SERVICE_KEY);
+		resource.delete(subscription);
+		resource.rawRetention = 2;
+		resource.retention = 30;
+	}
+
+	private SonarProject newProject(final double coverage, final double branchCoverage) {
+		final var project = new SonarProject();
+		project.setMeasuresAsMap(Map.of("coverage", coverage, "ncloc", 100));
+		final var main = new SonarBranch();
+		main.setMain(true);
+		main.setName("main");
+		main.setMeasuresAsMap(Map.of("coverage", coverage));
+		final var branch = new SonarBranch();
+		branch.setName("feature/1");
+		branch.setMeasuresAsMap(Map.of("coverage", branchCoverage));
+		project.setBranches(List.of(main, branch));
+		return project;
+	}
+
+	@Test
+	void record() {
+		resource.record(subscription, newProject(50, 10), DATE);
+		resource.record(subscription, newProject(50, 10), DATE);
+		resource.record(subscription, newProject(51, 11), DATE + HOUR);
+		resource.record(subscription, newProject(52, 12), DATE + 2 * HOUR);
+
+		// One block for the project, one for the branch, the main branch is the project
+		Assertions.assertEquals(2, repository.count());
+		final var block = repository.findFirstBySubscriptionIdAndBranchAndResolutionOrderByLastPointDesc(subscription, "",
+				SonarHistoryResolution.RAW);
+		Assertions.assertEquals(3, block.getSize());
+		Assertions.assertEquals("coverage,ncloc", block.getMetrics());
+
+		final var trend = resource.getTrend(subscription, null, DATE - DAY, DATE + DAY, null);
+		Assertions.assertEquals("", trend.getBranch());
+		Assertions.assertEquals(List.of(DATE, DATE + HOUR, DATE + 2 * HOUR), trend.getDates());
+		Assertions.assertEquals(List.of(50d, 51d, 52d), trend.getValues().get("coverage"));
+		Assertions.assertEquals(List.of(100d, 100d, 100d), trend.getValues().get("ncloc"));
+
+		final var branch = resource.getTrend(subscription, "feature/1", DATE - DAY, DATE + DAY, "coverage, bugs");
+		Assertions.assertEquals(List.of(10d, 11d, 12d), branch.getValues().get("coverage"));
+		Assertions.assertEquals(Arrays.asList(null, null, null), branch.getValues().get("bugs"));
+	}
+
+	@Test
+	void recordTooManyMetrics() {
+		final var project = new SonarProject();
+		final var measures = new HashMap<String, Integer>();
+		for (var i = 0; i < 100; i++) {
+			measures.put("custom_metric_" + i, i);
+		}
+		project.setMeasuresAsMap(measures);
+		resource.record(subscription, project, DATE);
+		Assertions.assertTrue(resource.getTrend(subscription, "", DATE - DAY, DATE + DAY, null).getValues().isEmpty());
+	}
+
+	@Test
+	void recordMetricsChanged() {
+		resource.record(subscription, newProject(50, 10), DATE);
+		final var project = new SonarProject();
+		project.setMeasuresAsMap(Map.of("bugs", 3));
+		resource.record(subscription, project, DATE + HOUR);
+
+		final var trend = resource.getTrend(subscription, "", DATE - DAY, DATE + DAY, null);
+		Assertions.assertEquals(Arrays.asList(null, 3d), trend.getValues().get("bugs"));
+		Assertions.assertEquals(Arrays.asList(50d, null), trend.getValues().get("coverage"));
+	}
+
+	@Test
+	void compact() {
+		resource.record(subscription, newProject(50, 10), DATE);
+		resource.record(subscription, newProject(52, 12), DATE + 2 * HOUR);
+		resource.record(subscription, newProject(60, 20), DATE + DAY);
+		resource.record(subscription, newProject(70, 30), DATE + 2 * DAY);
+		Assertions.assertEquals(6, repository.count());
+
+		// The first day is beyond the raw retention, only its last point is kept
+		resource.record(subscription, newProject(80, 40), DATE + 3 * DAY);
+		final var trend = resource.getTrend(subscription, null, DATE - DAY, DATE + 4 * DAY, "coverage");
+		Assertions.assertEquals(List.of(DATE + 2 * HOUR, DATE + DAY, DATE + 2 * DAY, DATE + 3 * DAY), trend.getDates());
+		Assertions.assertEquals(List.of(52d, 60d, 70d, 80d), trend.getValues().get("coverage"));
+		Assertions.assertEquals(SonarHistoryResolution.DAY, repository
+				.findFirstBySubscriptionIdAndBranchAndResolutionOrderByLastPointDesc(subscription, "", SonarHistoryResolution.DAY).getResolution());
+	}
+
+	@Test
+	void retention() {
+		resource.record(subscription, newProject(50, 10), DATE);
+		resource.record(subscription, newProject(90, 50), DATE + 40 * DAY);
+		final var trend = resource.getTrend(subscription, null, DATE - DAY, DATE + 41 * DAY, "coverage");
+		Assertions.assertEquals(List.of(90d), trend.getValues().get("coverage"));
+	}
+
+	@Test
+	void getTrendEmpty() {
+		final var trend = resource.getTrend(subscription, null, null, null, null);
+		Assertions.assertTrue(trend.getDates().isEmpty());
+		Assertions.assertTrue(trend.getValues().isEmpty());
+	}
+
+	@Test
+	void delete() {
+		resource.record(subscription, newProject(50, 10), DATE);
+		resource.delete(subscription);
+		Assertions.assertEquals(0, repository.count());
+
+		// Recorded again after the deletion
+		resource.record(subscription, newProject(50, 10), DATE);
+		Assertions.assertEquals(2, repository.count());
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class of {@link SonarMeasures}
+ */
+class SonarMeasuresTest {
+
+	private SonarMeasure newMeasure(final String key, final double value) {
+		final var measure = new SonarMeasure();
+		measure.setKey(key);
+		measure.setValue(value);
+		return measure;
+	}
+
+	@Test
+	void of() {
+		final var measures = SonarMeasures.of(List.of(newMeasure("ncloc", 8644), newMeasure("coverage", 85.5)));
+		Assertions.assertEquals(2, measures.size());
+		Assertions.assertEquals(8644d, measures.get("ncloc"));
+		Assertions.assertEquals(85.5d, measures.get("coverage"));
+		Assertions.assertEquals(85.5d, measures.getDouble("coverage", -1));
+		Assertions.assertEquals(-1d, measures.getDouble("bugs", -1));
+		Assertions.assertNull(measures.get("bugs"));
+		Assertions.assertNull(measures.get(1));
+		Assertions.assertTrue(measures.containsKey("ncloc"));
+		Assertions.assertFalse(measures.containsKey("bugs"));
+		Assertions.assertEquals(Map.of("ncloc", 8644d, "coverage", 85.5d), measures);
+	}
+
+	@Test
+	void ofMap() {
+		final var map = new HashMap<String, Integer>();
+		map.put("bugs", 3);
+		map.put("code_smells", null);
+		final var measures = SonarMeasures.of(map);
+		Assertions.assertEquals(Map.of("bugs", 3d), measures);
+		Assertions.assertSame(measures, SonarMeasures.of(measures));
+		Assertions.assertNull(SonarMeasures.of((Map<String, Integer>) null));
+		Assertions.assertTrue(SonarMeasures.of(Map.<String, Integer>of()).isEmpty());
+	}
+
+	@Test
+	void with() {
+		final var measures = SonarMeasures.of(Map.of("bugs", 3, "coverage", 80));
+		Assertions.assertEquals(Map.of("bugs", 3d, "coverage", 85.5d, "ncloc", 12d), measures.with(Map.of("coverage", 85.5, "ncloc", 12)));
+		Assertions.assertEquals(Map.of("bugs", 3d, "coverage", 80d), measures);
+	}
+
+	@Test
+	void unmodifiable() {
+		final var measures = SonarMeasures.of(Map.of("bugs", 3));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> measures.put("bugs", 1d));
+	}
+
+	@Test
+	void toJson() {
+		final var project = new SonarProject();
+		project.setMeasuresAsMap(Map.of("ncloc", 8644, "coverage", 85.5));
+		final var json = new ObjectMapperTrim().writeValueAsString(project);
+		Assertions.assertTrue(json.contains("\"measuresAsMap\":{\"ncloc\":8644,\"coverage\":85.5}")
+				|| json.contains("\"measuresAsMap\":{\"coverage\":85.5,\"ncloc\":8644}"), json);
+	}
+
+	@Test
+	void serialize() {
+		final var measures = SonarMeasures.of(Map.of("ncloc", 8644, "coverage", 85.5));
+		final var copy = SerializationUtils.clone(measures);
+		Assertions.assertInstanceOf(SonarMeasures.class, copy);
+		Assertions.assertEquals(measures, copy);
+	}
+}
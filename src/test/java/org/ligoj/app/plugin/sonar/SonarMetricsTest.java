@@ -0,0 +1,90 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * Test class of {@link SonarMetrics} and {@link SonarMicrometerMetrics}
+ */
+class SonarMetricsTest {
+
+	private static final String NODE = "http://localhost:8120";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final SonarMetrics metrics = new SonarMicrometerMetrics(registry);
+
+	@Test
+	void getApi() {
+		Assertions.assertEquals("version", SonarMetrics.getApi("api/server/version"));
+		Assertions.assertEquals("measures", SonarMetrics.getApi("api/measures/component?component=key&metricKeys=ncloc"));
+		Assertions.assertEquals("measures", SonarMetrics.getApi("api/measures/search?projectKeys=key"));
+		Assertions.assertEquals("measures", SonarMetrics.getApi("api/resources?format=json&resource=16010&metrics=ncloc"));
+		Assertions.assertEquals("branches", SonarMetrics.getApi("api/project_branches/list?project=key"));
+		Assertions.assertEquals("search", SonarMetrics.getApi("api/projects/search?q=key&ps=500&p=1"));
+		Assertions.assertEquals("search", SonarMetrics.getApi("api/components/search_projects?s=analysisDate&ps=500&p=1"));
+		Assertions.assertEquals("search", SonarMetrics.getApi("api/resources?format=json"));
+		Assertions.assertEquals("gate", SonarMetrics.getApi("api/qualitygates/project_status?projectKey=key"));
+		Assertions.assertEquals("issues", SonarMetrics.getApi("api/issues/search?componentKeys=key&p=1"));
+		Assertions.assertEquals("issues", SonarMetrics.getApi("api/hotspots/search?projectKey=key&p=1"));
+		Assertions.assertEquals("auth", SonarMetrics.getApi("api/authentication/validate?format=json"));
+		Assertions.assertEquals("admin", SonarMetrics.getApi("provisioning"));
+		Assertions.assertEquals("other", SonarMetrics.getApi("api/any"));
+		Assertions.assertEquals("other", SonarMetrics.getApi(null));
+	}
+
+	@Test
+	void call() {
+		metrics.call(NODE, "api/server/version", "200", System.nanoTime());
+		metrics.call(NODE, "api/measures/search?projectKeys=key", "503", System.nanoTime());
+		metrics.call(NODE, "api/measures/search?projectKeys=key", SonarMetrics.REJECTED, System.nanoTime());
+		Assertions.assertEquals(1, registry.get("sonar.calls").tags("node", NODE, "api", "version", "status", "200").timer().count());
+		Assertions.assertEquals(1, registry.get("sonar.calls").tags("api", "measures", "status", "503").timer().count());
+		Assertions.assertEquals(2, registry.get("sonar.calls.errors").tags("api", "measures").counters().stream().mapToDouble(c -> c.count()).sum());
+		Assertions.assertTrue(registry.find("sonar.calls.errors").tags("api", "version").counters().isEmpty());
+	}
+
+	@Test
+	void time() {
+		Assertions.assertEquals("result", metrics.time("project", NODE, () -> "result"));
+		Assertions.assertThrows(IllegalStateException.class, () -> metrics.time("project", NODE, () -> {
+			throw new IllegalStateException();
+		}));
+		Assertions.assertEquals(1, registry.get("sonar.operations").tags("node", NODE, "operation", "project", "outcome", "success").timer().count());
+		Assertions.assertEquals(1, registry.get("sonar.operations").tags("operation", "project", "outcome", "error").timer().count());
+	}
+
+	@Test
+	void fanOut() {
+		metrics.fanOut(NODE, 3);
+		metrics.fanOut(NODE, 0);
+		final var summary = registry.get("sonar.branches.fanout").tags("node", NODE).summary();
+		Assertions.assertEquals(2, summary.count());
+		Assertions.assertEquals(3, summary.max());
+	}
+
+	@Test
+	void of() {
+		// Global registry without registry in the context
+		Assertions.assertInstanceOf(SonarMicrometerMetrics.class, SonarMetrics.of(new DefaultListableBeanFactory()));
+
+		// Registry of the context
+		final var context = new DefaultListableBeanFactory();
+		context.registerSingleton("registry", registry);
+		SonarMetrics.of(context).fanOut(NODE, 1);
+		Assertions.assertEquals(1, registry.get("sonar.branches.fanout").summary().count());
+	}
+
+	@Test
+	void noop() {
+		final var noop = new SonarMetrics();
+		noop.call(NODE, "api/server/version", "200", System.nanoTime());
+		noop.fanOut(NODE, 1);
+		Assertions.assertEquals("result", noop.time("project", NODE, () -> "result"));
+	}
+}
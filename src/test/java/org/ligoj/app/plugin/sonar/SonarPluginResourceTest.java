@@ -3,7 +3,12 @@
  */
 package org.ligoj.app.plugin.sonar;
 
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.ServiceUnavailableException;
 import org.apache.commons.io.IOUtils;
 import org.apache.hc.core5.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
@@ -11,21 +16,35 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.api.SubscriptionMode;
 import org.ligoj.app.model.*;
 import org.ligoj.app.plugin.qa.QaResource;
 import org.ligoj.app.resource.node.ParameterValueResource;
 import org.ligoj.app.resource.subscription.SubscriptionResource;
 import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.json.ObjectMapperTrim;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.orm.jpa.EntityManagerHolder;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.core.type.TypeReference;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
@@ -46,6 +65,9 @@ class SonarPluginResourceTest extends AbstractServerTest {
 	@Autowired
 	private SubscriptionResource subscriptionResource;
 
+	@Autowired
+	private SonarCatalogStore catalogStore;
+
 	private int subscription;
 
 	@BeforeEach
@@ -54,6 +76,9 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		persistEntities("csv", new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
 				StandardCharsets.UTF_8);
 		this.subscription = getSubscription("Jupiter");
+		resource.evictCache("service:qa:sonarqube:bpr");
+		resource.catalogDelta = 60;
+		resource.catalogWait = 30;
 	}
 
 	private void mockVersion() throws IOException {
@@ -108,6 +133,106 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("4.3.2", version);
 	}
 
+	@Test
+	void getVersionCached() throws Exception {
+		mockVersion();
+		httpServer.start();
+
+		Assertions.assertEquals("4.3.2", resource.getVersion(subscription));
+		Assertions.assertEquals("4.3.2", resource.getVersion(subscription));
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/server/version")));
+
+		// Explicit eviction
+		resource.evictCache("service:qa:sonarqube:bpr");
+		Assertions.assertEquals("4.3.2", resource.getVersion(subscription));
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/api/server/version")));
+	}
+
+	@Test
+	void getVersionNotCachedOnError() throws Exception {
+		httpServer.stubFor(get(urlEqualTo("/api/server/version")).willReturn(aResponse().withStatus(HttpStatus.SC_BAD_GATEWAY)));
+		httpServer.start();
+
+		Assertions.assertNull(resource.getVersion(subscription));
+		Assertions.assertNull(resource.getVersion(subscription));
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/api/server/version")));
+	}
+
+	@Test
+	void getVersionMetrics() throws Exception {
+		mockVersion();
+		httpServer.start();
+		final var registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			Assertions.assertEquals("4.3.2", resource.getVersion(subscription));
+			Assertions.assertEquals(1, registry.get("sonar.calls").tags("node", "http://localhost:8120", "api", "version", "status", "200").timer().count());
+			Assertions.assertEquals(1, registry.get("sonar.operations").tags("operation", "version", "outcome", "success").timer().count());
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+	}
+
+	@Test
+	void getResourceCoalesced() throws Exception {
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=key"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{}").withFixedDelay(500)));
+		httpServer.start();
+
+		// Concurrent identical calls share the same response
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var calls = IntStream.range(0, 4).mapToObj(i -> executor.submit(() -> resource.getResource("9.9.3", parameters,
+					"api/measures/component?component=key"))).toList();
+			for (final var call : calls) {
+				Assertions.assertEquals("{}", call.get());
+			}
+		}
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/measures/component?component=key")));
+	}
+
+	@Test
+	void getResourceCircuitOpen() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=key")).willReturn(aResponse().withStatus(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+		httpServer.start();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		final var status = resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters);
+
+		// The node fails, then the calls are rejected without request
+		for (var i = 0; i < 5; i++) {
+			Assertions.assertNull(resource.getResource("9.9.3", parameters, "api/measures/component?component=key"));
+		}
+		Assertions.assertThrows(ServiceUnavailableException.class, () -> resource.getResource("9.9.3", parameters, "api/measures/component?component=key"));
+		httpServer.verify(5, getRequestedFor(urlEqualTo("/api/measures/component?component=key")));
+
+		// The snapshot is still served
+		Assertions.assertSame(status.getData().get("project"),
+				resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters).getData().get("project"));
+
+		// Explicit eviction closes the circuit
+		resource.evictCache("service:qa:sonarqube:bpr");
+		Assertions.assertNull(resource.getResource("9.9.3", parameters, "api/measures/component?component=key"));
+	}
+
+	@Test
+	void getBranchPermits() {
+		final var parameters = new HashMap<>(subscriptionResource.getParametersNoCheck(subscription));
+		parameters.put(SonarPluginResource.PARAMETER_BRANCHES_CONCURRENCY, "2");
+		final var permits = resource.getBranchPermits(parameters);
+		Assertions.assertEquals(2, permits.getSize());
+		Assertions.assertSame(permits, resource.getBranchPermits(parameters));
+
+		// The permits are rebuilt when the parameter changes
+		parameters.put(SonarPluginResource.PARAMETER_BRANCHES_CONCURRENCY, "3");
+		Assertions.assertEquals(3, resource.getBranchPermits(parameters).getSize());
+		parameters.remove(SonarPluginResource.PARAMETER_BRANCHES_CONCURRENCY);
+		Assertions.assertEquals(SonarPluginResource.DEFAULT_BRANCHES_CONCURRENCY, resource.getBranchPermits(parameters).getSize());
+	}
+
 	@Test
 	void getLastVersion() throws Exception {
 		final var lastVersion = resource.getLastVersion();
@@ -131,7 +256,7 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		mockVersion();
 		mockSession();
 		httpServer.stubFor(get(urlEqualTo("/provisioning")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
-		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=0&metrics=ncloc,coverage,sqale_rating"))
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=0"))
 				.willReturn(aResponse().withStatus(HttpStatus.SC_NOT_FOUND)));
 		httpServer.start();
 
@@ -146,24 +271,77 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		mockVersion();
 		mockSession();
 		httpServer.stubFor(get(urlEqualTo("/provisioning")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
-		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=16010&metrics=ncloc,coverage,sqale_rating"))
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=16010"))
 				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
 						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
 		httpServer.start();
 		validateLink("16010");
+		httpServer.verify(0, getRequestedFor(urlPathEqualTo("/api/measures/component")));
 	}
 
+	@Test
+	void linkMeasures() throws Exception {
+		mockVersion();
+		mockSession();
+		httpServer.stubFor(get(urlEqualTo("/provisioning")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=16010&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		// Full validation of the linked projects
+		final var parameter = new Parameter();
+		parameter.setId(SonarPluginResource.PARAMETER_LINK_MEASURES);
+		final var parameterValue = new ParameterValue();
+		parameterValue.setParameter(parameter);
+		parameterValue.setData("true");
+		parameterValue.setNode(em.find(Node.class, "service:qa:sonarqube:bpr"));
+		em.persist(parameterValue);
+		validateLink("16010");
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/resources?format=json&resource=16010&metrics=ncloc,coverage,sqale_rating")));
+	}
 
 	@Test
 	void link63() throws Exception {
 		mockVersion63();
 		mockSession();
 		httpServer.stubFor(get(urlEqualTo("/api/projects/search")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
-		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage,sqale_rating,security_rating,reliability_rating,security_review_rating"))
-				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
-						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/components/show?component=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{\"component\":{\"key\":\"fr.company1:project1\",\"name\":\"Project1\"}}")));
+		httpServer.start();
+		validateLink("fr.company1:project1");
+		validateLink("fr.company1:project1");
+
+		// The node validation is reused by the next links
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/authentication/validate?format=json")));
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/components/show")));
+	}
+
+	@Test
+	void link63NoProject() throws Exception {
+		mockVersion63();
+		mockSession();
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
+		httpServer.stubFor(get(urlEqualTo("/api/components/show?component=any")).willReturn(aResponse().withStatus(HttpStatus.SC_NOT_FOUND)));
 		httpServer.start();
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> validateLink("any")),
+				SonarPluginResource.PARAMETER_PROJECT, "sonar-project");
+	}
+
+	@Test
+	void link63Catalog() throws Exception {
+		mockVersion63();
+		mockSession();
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html></html>")));
+		httpServer.stubFor(
+				get(urlEqualTo("/api/projects/search?ps=500&p=1")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-projects.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		// The synchronized catalog is enough to validate the project
+		resource.findAllByName("service:qa:sonarqube:bpr", "Com");
 		validateLink("fr.company1:project1");
+		httpServer.verify(0, getRequestedFor(urlPathEqualTo("/api/components/show")));
 	}
 
 	private void validateLink(final String id) throws Exception {
@@ -209,6 +387,20 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("fr.company1:project1", project.getKey());
 	}
 
+	@Test
+	void validateProject63Formatted() throws IOException {
+		mockVersion63();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage,sqale_rating,security_rating,reliability_rating,security_review_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("\r\n{\r\n  \"component\" :\r\n  {\"key\":\"fr.company1:project1\",\"name\":\"Project\\nOne\","
+						+ "\"measures\":[{\"metric\":\"ncloc\",\"value\":\"12\"}]},\r\n  \"metrics\":[]\r\n}  \n")));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		final var project = resource.validateProject(parameters);
+		Assertions.assertEquals("fr.company1:project1", project.getKey());
+		Assertions.assertEquals("Project\nOne", project.getName());
+		Assertions.assertEquals(12, project.getMeasuresAsMap().get("ncloc"));
+	}
 
 	@Test
 	void validateProject66() throws Exception {
@@ -237,7 +429,10 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("2023-08-08T10:11:18+0000", mainBranch.getAnalysisDate());
 		Assertions.assertEquals("BRANCH", mainBranch.getType());
 		Assertions.assertEquals("OK", mainBranch.getStatus().get("qualityGateStatus"));
-		Assertions.assertNull(mainBranch.getMeasuresAsMap());
+
+		// Main branch measures are the project ones, without additional call
+		Assertions.assertEquals(project.getMeasuresAsMap(), mainBranch.getMeasuresAsMap());
+		httpServer.verify(0, getRequestedFor(urlPathEqualTo("/api/measures/component")).withQueryParam("branch", equalTo("main")));
 
 		 var nextBranch = project.getBranches().get(1);
 		Assertions.assertFalse(nextBranch.isMain());
@@ -257,6 +452,226 @@ class SonarPluginResourceTest extends AbstractServerTest {
 
 	}
 
+	@Test
+	void validateProject66Incremental() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage,sqale_rating,security_rating,reliability_rating,security_review_rating&branch=features%2F1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branch-metrics.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/qualitygates/project_status?projectKey=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-quality-gate.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		parameters.put(SonarPluginResource.PARAMETER_MAX_BRANCHES, "3");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_OVERRIDE, "ncloc,coverage");
+		final var previous = resource.validateProject(parameters);
+		httpServer.resetRequests();
+
+		// Nothing has been analyzed since the previous state: only the branch list and the incomplete pull request
+		final var project = resource.validateProject(parameters, previous);
+		Assertions.assertEquals(previous.getMeasuresAsMap(), project.getMeasuresAsMap());
+		Assertions.assertEquals(previous.getBranches().get(1).getMeasuresAsMap(), project.getBranches().get(1).getMeasuresAsMap());
+		Assertions.assertEquals(3, project.getBranches().size());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/project_branches/list")));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/component")));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/component")).withQueryParam("pullRequest", equalTo("34")));
+	}
+
+	@Test
+	void validateProject66IncrementalIncomplete() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlPathEqualTo("/api/measures/component")).withQueryParam("branch", equalTo("features/1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_BAD_GATEWAY)));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		parameters.put(SonarPluginResource.PARAMETER_MAX_BRANCHES, "3");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_OVERRIDE, "ncloc,coverage");
+		final var previous = resource.validateProject(parameters);
+		Assertions.assertFalse(previous.getBranches().get(1).isComplete());
+		httpServer.resetRequests();
+
+		// Without project gate nor branch measures, nothing is reused
+		resource.validateProject(parameters, previous);
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/component")).withQueryParam("branch", equalTo("features/1")));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/qualitygates/project_status")));
+	}
+
+	@Test
+	void validateProject66BranchesStatus() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches-status.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=coverage&branch=features%2F1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{\"component\":{\"key\":\"fr.company1:project1\",\"measures\":[{\"metric\":\"coverage\",\"value\":\"85.5\"}]}}")));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_OVERRIDE, "ncloc,coverage");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_BRANCHES, "bugs,code_smells,coverage");
+		final var project = resource.validateProject(parameters);
+
+		// Main branch: from the status and the project, no call
+		final var mainBranch = project.getBranches().getFirst();
+		Assertions.assertEquals(Map.of("bugs", 1d, "code_smells", 12d, "coverage", 100d), mainBranch.getMeasuresAsMap());
+
+		// Other branch: from the status, then only the missing metric
+		final var nextBranch = project.getBranches().get(1);
+		Assertions.assertEquals("features/1", nextBranch.getName());
+		Assertions.assertEquals(Map.of("bugs", 0d, "code_smells", 3d, "coverage", 85.5d), nextBranch.getMeasuresAsMap());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/component")).withQueryParam("branch", matching(".*")));
+	}
+
+	@Test
+	void validateProject66QualityGate() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches-status.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/qualitygates/project_status?projectKey=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-quality-gate.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/qualitygates/project_status?projectKey=fr.company1%3Aproject1&branch=features%2F1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{\"projectStatus\":{\"status\":\"ERROR\",\"conditions\":"
+						+ "[{\"status\":\"ERROR\",\"metricKey\":\"bugs\",\"comparator\":\"GT\",\"errorThreshold\":\"0\",\"actualValue\":\"2\"}]}}")));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_OVERRIDE, "ncloc,coverage");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_BRANCHES, "bugs,code_smells");
+		final var project = resource.validateProject(parameters);
+
+		// Project gate with only the failing conditions, shared by the main branch
+		final var gate = project.getQualityGate();
+		Assertions.assertEquals("ERROR", gate.getStatus());
+		Assertions.assertEquals(1, gate.getConditions().size());
+		final var condition = gate.getConditions().getFirst();
+		Assertions.assertEquals("new_coverage", condition.getMetric());
+		Assertions.assertEquals("LT", condition.getComparator());
+		Assertions.assertEquals("85", condition.getThreshold());
+		Assertions.assertEquals("82.5", condition.getActual());
+		Assertions.assertSame(gate, project.getBranches().getFirst().getQualityGate());
+
+		// Failing branch: conditions requested
+		final var branchGate = project.getBranches().get(1).getQualityGate();
+		Assertions.assertEquals("ERROR", branchGate.getStatus());
+		Assertions.assertEquals("bugs", branchGate.getConditions().getFirst().getMetric());
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/qualitygates/project_status")));
+	}
+
+	@Test
+	void getQualityGates() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/search?projectKeys=123456&metricKeys=alert_status"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-measures-search-gate.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		final var statuses = resource.getQualityGates(List.of(subscription, subscription, -1));
+		Assertions.assertEquals(1, statuses.size());
+		final var status = statuses.getFirst();
+		Assertions.assertEquals(subscription, status.getSubscription());
+		Assertions.assertEquals("123456", status.getKey());
+		Assertions.assertEquals("ERROR", status.getStatus());
+		Assertions.assertNull(status.getAge());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/search")));
+	}
+
+	@Test
+	void getQualityGatesSnapshot() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=123456&metricKeys=" + SonarPluginResource.DEFAULT_METRICS_63))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/qualitygates/project_status?projectKey=123456"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-quality-gate.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", subscriptionResource.getParametersNoCheck(subscription));
+		httpServer.resetRequests();
+
+		// The snapshot is served without call
+		final var status = resource.getQualityGates(List.of(subscription)).getFirst();
+		Assertions.assertEquals("ERROR", status.getStatus());
+		Assertions.assertNotNull(status.getAge());
+		httpServer.verify(0, getRequestedFor(anyUrl()));
+	}
+
+	@Test
+	void validateProject66BranchTypes() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		parameters.put(SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+		parameters.put(SonarPluginResource.PARAMETER_MAX_BRANCHES, "3");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_OVERRIDE, "ncloc,coverage");
+		parameters.put(SonarPluginResource.PARAMETER_METRICS_BRANCHES, "");
+		parameters.put(SonarPluginResource.PARAMETER_BRANCH_TYPES, "BRANCH");
+		final var project = resource.validateProject(parameters);
+
+		// The pull request is not selected
+		Assertions.assertEquals(List.of("main", "features/1", "features/old"), project.getBranches().stream().map(SonarBranch::getName).toList());
+	}
+
+	@Test
+	void validateProject66BranchesTimeout() throws Exception {
+		mockVersion66();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010_6.3.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/project_branches/list?project=fr.company1%3Aproject1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branches.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage,sqale_rating,security_rating,reliability_rating,security_review_rating&branch=features%2F1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(3000).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branch-metrics.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/api/measures/component?component=fr.company1%3Aproject1&metricKeys=ncloc,coverage,sqale_rating,security_rating,reliability_rating,security_review_rating&pullRequest=34"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-branch-metrics.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		final var timeout = resource.branchesTimeout;
+		try {
+			resource.branchesTimeout = 1;
+			final var project = validateProject("fr.company1:project1", "3", "ncloc,coverage");
+
+			// Partial result: the slow branch has no measure
+			Assertions.assertEquals(3, project.getBranches().size());
+			Assertions.assertEquals("features/1", project.getBranches().get(1).getName());
+			Assertions.assertNull(project.getBranches().get(1).getMeasuresAsMap());
+			Assertions.assertEquals("pr/34", project.getBranches().get(2).getName());
+			Assertions.assertEquals(5, project.getBranches().get(2).getMeasuresAsMap().get("security_review_rating"));
+		} finally {
+			resource.branchesTimeout = timeout;
+		}
+	}
+
 	private SonarProject validateProject(final String id, final String maxBranches, final String metrics) throws IOException {
 		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
 		parameters.put(SonarPluginResource.PARAMETER_PROJECT, id);
@@ -301,6 +716,207 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		Assertions.assertTrue(resource.checkSubscriptionStatus(subscriptionResource.getParametersNoCheck(subscription)).getStatus().isUp());
 	}
 
+	@Test
+	void checkSubscriptionStatusSnapshot() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		final var status = resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters);
+		Assertions.assertNotNull(status.getData().get("project"));
+
+		// The snapshot is served without additional call
+		final var status2 = resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters);
+		Assertions.assertSame(status.getData().get("project"), status2.getData().get("project"));
+		Assertions.assertTrue((Long) status2.getData().get("age") >= 0);
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/resources")));
+
+		// Without subscription identifier, the project is loaded again
+		Assertions.assertNotSame(status.getData().get("project"), resource.checkSubscriptionStatus(parameters).getData().get("project"));
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/resources")));
+	}
+
+	@Test
+	void checkSubscriptionStatusHistoryFailure() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		// The record of an unknown subscription fails, out of the transaction of the status check
+		final var status = resource.checkSubscriptionStatus(-1, "service:qa:sonarqube:bpr", subscriptionResource.getParametersNoCheck(subscription));
+		Assertions.assertTrue(status.getStatus().isUp());
+		final var holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(em.getEntityManagerFactory());
+		Assertions.assertFalse(holder.isRollbackOnly());
+	}
+
+	private String sign(final String payload) throws Exception {
+		final var mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec("webhook-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void webhook() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", subscriptionResource.getParametersNoCheck(subscription));
+
+		final var payload = "{\"status\":\"SUCCESS\",\"analysedAt\":\"2023-08-08T10:11:18+0000\",\"project\":{\"key\":\"123456\",\"name\":\"Project\"},"
+				+ "\"branch\":{\"name\":\"main\",\"type\":\"BRANCH\",\"isMain\":true},\"qualityGate\":{\"status\":\"OK\"}}";
+		Assertions.assertEquals(1, resource.webhook("service:qa:sonarqube:bpr", sign(payload), payload));
+
+		// Not subscribed project
+		final var other = payload.replace("123456", "other");
+		Assertions.assertEquals(0, resource.webhook("service:qa:sonarqube:bpr", sign(other), other));
+
+		// Failed analysis
+		final var failed = payload.replace("SUCCESS", "FAILED");
+		Assertions.assertEquals(0, resource.webhook("service:qa:sonarqube:bpr", sign(failed), failed));
+	}
+
+	@Test
+	void webhookProjectId() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", subscriptionResource.getParametersNoCheck(subscription));
+
+		// SonarQube calls with the API token of a technical user, without visibility on the subscriptions
+		initSpringSecurityContext("sonar-webhook");
+
+		// The subscription parameter is a project identifier, matched by the key of its snapshot
+		final var payload = "{\"status\":\"SUCCESS\",\"project\":{\"key\":\"fr.company1:project1\",\"name\":\"Project\"}}";
+		Assertions.assertEquals(1, resource.webhook("service:qa:sonarqube:bpr", sign(payload), payload));
+	}
+
+	@Test
+	void webhookInvalidSignature() throws Exception {
+		final var payload = "{\"project\":{\"key\":\"123456\"}}";
+		Assertions.assertThrows(ForbiddenException.class, () -> resource.webhook("service:qa:sonarqube:bpr", sign(payload + " "), payload));
+		Assertions.assertThrows(ForbiddenException.class, () -> resource.webhook("service:qa:sonarqube:bpr", "not-hexa", payload));
+		Assertions.assertThrows(ForbiddenException.class, () -> resource.webhook("service:qa:sonarqube:bpr", null, payload));
+	}
+
+	@Test
+	void checkSubscriptionStatusNoRefresh() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		parameters.put(SonarPluginResource.PARAMETER_REFRESH_INTERVAL, "0");
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters);
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", parameters);
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/resources")));
+	}
+
+	@Test
+	void getProjectsMeasures() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlPathEqualTo("/api/measures/search"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-measures-search.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		final var parameters = pvResource.getNodeParameters("service:qa:sonarqube:bpr");
+		final var projects = resource.getProjectsMeasures(parameters, List.of("fr.company1:project1", "fr.some2:project2", "fr.any:unknown"));
+		Assertions.assertEquals(2, projects.size());
+		final var project = projects.get("fr.company1:project1");
+		Assertions.assertEquals("fr.company1:project1", project.getKey());
+		Assertions.assertEquals(8644, project.getMeasuresAsMap().get("ncloc"));
+		Assertions.assertEquals(100, project.getMeasuresAsMap().get("coverage"));
+		Assertions.assertEquals(1, project.getMeasuresAsMap().get("sqale_rating"));
+		Assertions.assertTrue(project.getBranches().isEmpty());
+		Assertions.assertEquals(42, projects.get("fr.some2:project2").getMeasuresAsMap().get("coverage"));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/search")));
+	}
+
+	@Test
+	void getProjectsMeasuresChunked() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlPathEqualTo("/api/measures/search"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{\"measures\":[]}")));
+		httpServer.start();
+
+		final var keys = IntStream.range(0, SonarPluginResource.MEASURES_SEARCH_CHUNK + 1).mapToObj(i -> "project" + i).toList();
+		Assertions.assertTrue(resource.getProjectsMeasures(pvResource.getNodeParameters("service:qa:sonarqube:bpr"), keys).isEmpty());
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/measures/search")));
+	}
+
+	@Test
+	void getProjectsMeasuresBySubscription() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		// Old API, no batch
+		final var projects = resource.getProjectsMeasures(List.of(subscription));
+		Assertions.assertEquals(1, projects.size());
+		Assertions.assertEquals(8644, projects.get(subscription).getMeasuresAsMap().get("ncloc"));
+	}
+
+	private List<Map<String, Object>> getPortfolio(final Integer project) throws IOException {
+		final var output = new ByteArrayOutputStream();
+		resource.getPortfolio("service:qa:sonarqube:bpr", project).write(output);
+		return new ObjectMapperTrim().readValue(output.toString(StandardCharsets.UTF_8), new TypeReference<>() {
+		});
+	}
+
+	@Test
+	void getPortfolio() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlEqualTo("/api/measures/search?projectKeys=123456&metricKeys=" + SonarPluginResource.DEFAULT_METRICS_63 + ",alert_status"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-measures-search-gate.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		final var entries = getPortfolio(null);
+		Assertions.assertEquals(1, entries.size());
+		final var entry = entries.getFirst();
+		Assertions.assertEquals(subscription, entry.get("subscription"));
+		Assertions.assertEquals("ligoj-jupiter", entry.get("project"));
+		Assertions.assertEquals("Jupiter", entry.get("name"));
+		Assertions.assertEquals("123456", entry.get("key"));
+		Assertions.assertEquals(Map.of("ncloc", 8644, "coverage", 85.5), entry.get("measures"));
+		Assertions.assertEquals(Map.of("qualityGateStatus", "ERROR"), entry.get("status"));
+		Assertions.assertFalse(entry.containsKey("age"));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/measures/search")));
+	}
+
+	@Test
+	void getPortfolioSnapshot() throws Exception {
+		mockVersion();
+		httpServer.stubFor(get(urlEqualTo("/api/resources?format=json&resource=123456&metrics=ncloc,coverage,sqale_rating"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-resource-16010.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+		resource.checkSubscriptionStatus(subscription, "service:qa:sonarqube:bpr", subscriptionResource.getParametersNoCheck(subscription));
+
+		// The snapshot is served without additional call
+		final var entries = getPortfolio(em.find(Subscription.class, subscription).getProject().getId());
+		Assertions.assertEquals(1, entries.size());
+		Assertions.assertEquals(8644, ((Map<?, ?>) entries.getFirst().get("measures")).get("ncloc"));
+		Assertions.assertTrue(entries.getFirst().containsKey("age"));
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/resources")));
+	}
+
+	@Test
+	void getPortfolioOtherProject() throws Exception {
+		Assertions.assertTrue(getPortfolio(-1).isEmpty());
+	}
+
 	@Test
 	void validateAdminAccess() throws Exception {
 		mockVersion();
@@ -395,7 +1011,7 @@ class SonarPluginResourceTest extends AbstractServerTest {
 	void findProjectByName63() throws Exception {
 		mockVersion63();
 		httpServer.stubFor(
-				get(urlEqualTo("/api/projects/search?q=COM")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+				get(urlEqualTo("/api/projects/search?ps=500&p=1")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
 						new ClassPathResource("mock-server/sonar/sonar-projects.json").getInputStream(), StandardCharsets.UTF_8))));
 		httpServer.start();
 
@@ -405,4 +1021,196 @@ class SonarPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("Parent defining top level global configuration of projects.", projects.get(0).getDescription());
 		Assertions.assertEquals("fr.company1:project1", projects.get(1).getKey());
 	}
+
+	@Test
+	void findProjectByName63Catalog() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(
+				get(urlEqualTo("/api/projects/search?ps=500&p=1")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-projects.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		Assertions.assertEquals(2, resource.findAllByName("service:qa:sonarqube:bpr", "Com").size());
+		Assertions.assertEquals(2, resource.findAllByName("service:qa:sonarqube:bpr", "Com").size());
+
+		// Other criteria, searched in the catalog
+		final var projects = resource.findAllByName("service:qa:sonarqube:bpr", "Company1");
+		Assertions.assertEquals(1, projects.size());
+		Assertions.assertEquals("fr.company1:project1", projects.getFirst().getKey());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/projects/search")));
+	}
+
+	@Test
+	void findProjectByName63Background() throws Exception {
+		mockVersion63();
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search?ps=500&p=1")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withFixedDelay(1000).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/sonar/sonar-projects.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.start();
+
+		// The first synchronization runs in the background, without blocking the searches
+		resource.catalogWait = 0;
+		Assertions.assertTrue(resource.findAllByName("service:qa:sonarqube:bpr", "Com").isEmpty());
+		Assertions.assertTrue(resource.findAllByName("service:qa:sonarqube:bpr", "Com").isEmpty());
+
+		// Then the synchronized catalog is served
+		resource.catalogWait = 30;
+		Assertions.assertEquals(2, resource.findAllByName("service:qa:sonarqube:bpr", "Com").size());
+		httpServer.verify(1, getRequestedFor(urlPathEqualTo("/api/projects/search")));
+	}
+
+	@Test
+	void findProjectByName63Paging() throws Exception {
+		mockVersion63();
+		final var page = IntStream.range(0, SonarPluginResource.PROJECTS_PAGE_SIZE)
+				.mapToObj(i -> "{\"key\":\"fr.company:project" + i + "\",\"name\":\"Company - Project" + i + "\"}")
+				.collect(Collectors.joining(",", "{\"paging\":{\"pageIndex\":1},\"components\":[", "]}"));
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search?ps=500&p=1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(page)));
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search?ps=500&p=2")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody("{\"components\":[{\"key\":\"fr.other:project\",\"name\":\"Other - Project\"}]}")));
+		httpServer.start();
+
+		// At most SEARCH_MAX_RESULTS projects are returned
+		final var projects = resource.findAllByName("service:qa:sonarqube:bpr", "Com");
+		Assertions.assertEquals(SonarPluginResource.SEARCH_MAX_RESULTS, projects.size());
+		Assertions.assertEquals("fr.company:project0", projects.getFirst().getKey());
+		Assertions.assertEquals(SonarPluginResource.PROJECTS_PAGE_SIZE + 1, resource.getCatalog("service:qa:sonarqube:bpr").size());
+		httpServer.verify(2, getRequestedFor(urlPathEqualTo("/api/projects/search")));
+	}
+
+	private static String toProjects(final String... projects) {
+		return "{\"paging\":{\"total\":" + projects.length + "},\"components\":[" + String.join(",", projects) + "]}";
+	}
+
+	private void mockProjects(final String url, final String... projects) {
+		httpServer.stubFor(get(urlEqualTo(url)).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toProjects(projects))));
+	}
+
+	private static String newProject(final String key, final String date) {
+		return "{\"key\":\"" + key + "\",\"name\":\"Company - " + key + "\"" + (date == null ? "" : ",\"lastAnalysisDate\":\"" + date + "\"") + "}";
+	}
+
+	/**
+	 * Mock the project list of a first synchronization, then the analyzed projects and the project list of the next ones.
+	 */
+	private void mockCatalogDelta(final List<String> first, final List<String> analyzed, final List<String> listed) {
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search?ps=500&p=1")).inScenario("catalog").whenScenarioStateIs(Scenario.STARTED)
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toProjects(first.toArray(String[]::new))))
+				.willSetStateTo("synchronized"));
+		httpServer.stubFor(get(urlEqualTo("/api/projects/search?ps=500&p=1")).inScenario("catalog").whenScenarioStateIs("synchronized")
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(toProjects(listed.toArray(String[]::new)))));
+		mockProjects("/api/components/search_projects?s=analysisDate&asc=false&f=analysisDate&ps=500&p=1",
+				analyzed.stream().map(p -> p.replace("lastAnalysisDate", "analysisDate")).toArray(String[]::new));
+	}
+
+	@Test
+	void getCatalog66Delta() throws Exception {
+		mockVersion66();
+		final var recent = newProject("recent", "2023-08-09T10:00:00+0000");
+		final var old = newProject("old", "2023-08-08T10:00:00+0000");
+		final var older = newProject("older", "2023-08-07T10:00:00+0000");
+		mockCatalogDelta(List.of(old, older), List.of(recent, old, older), List.of(newProject("new", null), recent, old, older));
+		httpServer.start();
+
+		// Full synchronization
+		Assertions.assertEquals(List.of("old", "older"),
+				resource.getCatalog("service:qa:sonarqube:bpr").stream().map(SonarProject::getKey).toList());
+
+		// Delta synchronization: the projects analyzed since the previous synchronization, and the provisioned ones
+		resource.catalogDelta = 0;
+		final var projects = resource.getCatalog("service:qa:sonarqube:bpr");
+		Assertions.assertEquals(List.of("new", "old", "older", "recent"), projects.stream().map(SonarProject::getKey).toList());
+		Assertions.assertNull(projects.getFirst().getLastAnalysisDate());
+		Assertions.assertEquals("2023-08-09T10:00:00+0000", projects.getLast().getLastAnalysisDate());
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/api/projects/search?ps=500&p=1")));
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/components/search_projects?s=analysisDate&asc=false&f=analysisDate&ps=500&p=1")));
+		Assertions.assertEquals(1, resource.findAllByName("service:qa:sonarqube:bpr", "recent").size());
+	}
+
+	@Test
+	void getCatalog66DeltaDeleted() throws Exception {
+		mockVersion66();
+		final var old = newProject("old", "2023-08-08T10:00:00+0000");
+		final var older = newProject("older", "2023-08-07T10:00:00+0000");
+		final var recent = newProject("recent", "2023-08-09T10:00:00+0000");
+
+		// "older" is renamed to "renamed", without new analysis, and "recent" is created: the count does not change
+		mockCatalogDelta(List.of(old, older), List.of(recent, old), List.of(old, recent, newProject("renamed", "2023-08-07T10:00:00+0000")));
+		httpServer.start();
+		Assertions.assertEquals(2, resource.getCatalog("service:qa:sonarqube:bpr").size());
+
+		// The keys are reconciled
+		resource.catalogDelta = 0;
+		Assertions.assertEquals(List.of("old", "recent", "renamed"),
+				resource.getCatalog("service:qa:sonarqube:bpr").stream().map(SonarProject::getKey).toList());
+		Assertions.assertTrue(resource.findAllByName("service:qa:sonarqube:bpr", "older").isEmpty());
+		Assertions.assertEquals(1, resource.findAllByName("service:qa:sonarqube:bpr", "renamed").size());
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/api/projects/search?ps=500&p=1")));
+	}
+
+	@Test
+	void getCatalogPersisted() throws Exception {
+		mockVersion66();
+		final var recent = newProject("recent", "2023-08-09T10:00:00+0000");
+		final var old = newProject("old", "2023-08-08T10:00:00+0000");
+		final var older = newProject("older", "2023-08-07T10:00:00+0000");
+		final var listed = List.of(newProject("new", null), recent, old, older);
+		mockCatalogDelta(listed, List.of(recent, old, older), listed);
+		httpServer.start();
+		final var persisted = new SonarProject();
+		persisted.setKey("old");
+		persisted.setId("old");
+		persisted.setName("Company - old");
+		persisted.setLastAnalysisDate("2023-08-08T10:00:00+0000");
+		final var persistedOlder = new SonarProject();
+		persistedOlder.setKey("older");
+		persistedOlder.setId("older");
+		persistedOlder.setName("Company - older");
+		persistedOlder.setLastAnalysisDate("2023-08-07T10:00:00+0000");
+		catalogStore.save("service:qa:sonarqube:bpr", List.of(persisted, persistedOlder), List.of());
+
+		// The persisted catalog is synchronized by delta: a single read of the project list to reconcile the keys
+		Assertions.assertEquals(4, resource.getCatalog("service:qa:sonarqube:bpr").size());
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/projects/search?ps=500&p=1")));
+		Assertions.assertEquals(List.of("new", "old", "older", "recent"),
+				catalogStore.load("service:qa:sonarqube:bpr").stream().map(SonarProject::getKey).sorted().toList());
+
+		// Evicted with the node cache
+		resource.evictCache("service:qa:sonarqube:bpr");
+		Assertions.assertTrue(catalogStore.load("service:qa:sonarqube:bpr").isEmpty());
+	}
+
+	@Test
+	void deleteNode() throws Exception {
+		final var node = new Node();
+		node.setId("service:qa:sonarqube:deleted");
+		node.setName("SonarQube Deleted");
+		node.setRefined(em.find(Node.class, "service:qa:sonarqube"));
+		node.setMode(SubscriptionMode.LINK);
+		em.persist(node);
+		em.flush();
+		final var project = new SonarProject();
+		project.setKey("old");
+		project.setId("old");
+		project.setName("Company - old");
+		catalogStore.save(node.getId(), List.of(project), List.of());
+
+		// The persisted catalog does not block the node deletion
+		resource.delete(node.getId(), false);
+		em.remove(node);
+		em.flush();
+		em.clear();
+		Assertions.assertTrue(catalogStore.load("service:qa:sonarqube:deleted").isEmpty());
+		Assertions.assertNull(em.find(Node.class, "service:qa:sonarqube:deleted"));
+	}
+
+	@Test
+	void getCatalogUnavailable() throws Exception {
+		mockVersion63();
+		httpServer.start();
+
+		// Incomplete synchronization, the catalog is kept empty
+		Assertions.assertTrue(resource.getCatalog("service:qa:sonarqube:bpr").isEmpty());
+	}
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Test class of {@link SonarProjectIndex}
+ */
+class SonarProjectIndexTest {
+
+	private SonarSearchEntry newEntry(final String name, final String key) {
+		final var project = new SonarProject();
+		project.setName(name);
+		project.setKey(key);
+		return new SonarSearchEntry(project, name.toUpperCase(), key.toUpperCase());
+	}
+
+	private List<String> search(final SonarProjectIndex index, final String criteria, final int limit) {
+		return index.search(criteria, limit).stream().map(e -> e.getProject().getKey()).toList();
+	}
+
+	private final SonarProjectIndex index = new SonarProjectIndex(List.of(newEntry("Ligoj - Web", "org.ligoj:web"),
+			newEntry("Company - Project", "fr.company:project"), newEntry("Project", "fr.other:project"),
+			newEntry("Other", "fr.company:other")));
+
+	@Test
+	void searchRanked() {
+		// Exact name, name prefix, key containing the criteria, then by name
+		Assertions.assertEquals(List.of("fr.other:project", "fr.company:project"), search(index, "PROJECT", 10));
+		Assertions.assertEquals(List.of("fr.company:project", "fr.company:other"), search(index, "COMPANY", 10));
+	}
+
+	@Test
+	void searchLimit() {
+		Assertions.assertEquals(List.of("fr.company:project"), search(index, "COMPANY", 1));
+		Assertions.assertTrue(search(index, "COMPANY", 0).isEmpty());
+	}
+
+	@Test
+	void searchShortCriteria() {
+		Assertions.assertEquals(List.of("fr.company:other", "org.ligoj:web"), search(index, "O", 2));
+	}
+
+	@Test
+	void searchNoMatch() {
+		Assertions.assertTrue(search(index, "UNKNOWN", 10).isEmpty());
+
+		// All trigrams are known, but not contiguous
+		Assertions.assertTrue(search(index, "OTHERPROJECT", 10).isEmpty());
+	}
+
+	@Test
+	void addRemove() {
+		index.add(newEntry("Company - Renamed", "fr.company:project"));
+		Assertions.assertEquals(4, index.size());
+		Assertions.assertEquals(List.of("fr.company:project"), search(index, "RENAMED", 10));
+		Assertions.assertTrue(search(index, "- PROJECT", 10).isEmpty());
+
+		index.remove("fr.company:project");
+		index.remove("fr.company:unknown");
+		Assertions.assertEquals(3, index.size());
+		Assertions.assertEquals(List.of("fr.company:other"), search(index, "COMPANY", 10));
+	}
+
+	@Test
+	void compact() {
+		// Renamed many times: the removed slots are reclaimed
+		for (var i = 0; i < 1000; i++) {
+			index.add(newEntry("Company - Renamed " + i, "fr.company:project"));
+		}
+		Assertions.assertEquals(4, index.size());
+		Assertions.assertTrue(index.capacity() <= 8);
+		Assertions.assertEquals(List.of("fr.company:project"), search(index, "RENAMED 999", 10));
+		Assertions.assertEquals(List.of("fr.company:project", "fr.company:other"), search(index, "COMPANY", 10));
+		Assertions.assertEquals(List.of("fr.company:other", "org.ligoj:web"), search(index, "O", 2));
+	}
+
+	@Test
+	void searchLarge() {
+		final var large = new SonarProjectIndex(IntStream.range(0, 10000).mapToObj(i -> newEntry("Project " + i, "fr.company:p" + i)).toList());
+		Assertions.assertEquals(List.of("fr.company:p123", "fr.company:p1230", "fr.company:p1231"), search(large, "PROJECT 123", 3));
+	}
+}
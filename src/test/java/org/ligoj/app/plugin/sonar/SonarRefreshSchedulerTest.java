@@ -0,0 +1,243 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Test class of {@link SonarRefreshScheduler}
+ */
+class SonarRefreshSchedulerTest {
+
+	private static final Map<String, String> SUBSCRIPTION = Map.of(SonarPluginResource.PARAMETER_URL, "http://localhost:8120",
+			SonarPluginResource.PARAMETER_PROJECT, "fr.company1:project1");
+
+	private static final int ID = 1;
+
+	private static final Duration IDLE = Duration.ofMinutes(1);
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private SonarRefreshScheduler scheduler;
+
+	private SonarRefreshScheduler newScheduler(final BiFunction<Map<String, String>, SonarProject, SonarProject> loader) {
+		scheduler = new SonarRefreshScheduler(loader, Duration.ofMillis(20), 2);
+		return scheduler;
+	}
+
+	private SonarProject load(final Map<String, String> parameters, final SonarProject previous) {
+		final var project = new SonarProject();
+		project.setKey(parameters.get(SonarPluginResource.PARAMETER_PROJECT));
+		project.setName(String.valueOf(loads.incrementAndGet()));
+		return project;
+	}
+
+	/**
+	 * Wait for a background refresh reaching the given condition.
+	 */
+	private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+		final var deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition not reached");
+			Thread.sleep(10);
+		}
+	}
+
+	@AfterEach
+	void close() {
+		scheduler.close();
+	}
+
+	@Test
+	void getDisabled() {
+		newScheduler(this::load);
+		Assertions.assertEquals("1", scheduler.get(ID, SUBSCRIPTION, Duration.ZERO, IDLE).project().getName());
+		Assertions.assertEquals("2", scheduler.get(ID, SUBSCRIPTION, Duration.ZERO, IDLE).project().getName());
+	}
+
+	@Test
+	void getSnapshot() {
+		newScheduler(this::load);
+		final var snapshot = scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		Assertions.assertEquals("1", snapshot.project().getName());
+		Assertions.assertSame(snapshot, scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE));
+		Assertions.assertTrue(snapshot.getAge() >= 0);
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	void refresh() throws InterruptedException {
+		newScheduler(this::load);
+		Assertions.assertEquals("1", scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE).project().getName());
+		waitFor(() -> !"1".equals(scheduler.peek(ID).project().getName()));
+		Assertions.assertTrue(loads.get() > 1);
+		Assertions.assertNotEquals("1", scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE).project().getName());
+	}
+
+	@Test
+	void refreshIncremental() throws InterruptedException {
+		final var previousNames = new CopyOnWriteArrayList<String>();
+		newScheduler((p, previous) -> {
+			previousNames.add(previous == null ? null : previous.getName());
+			return load(p, previous);
+		});
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE);
+		waitFor(() -> previousNames.size() > 1);
+
+		// The first load is complete, the next ones receive the previous snapshot
+		Assertions.assertNull(previousNames.getFirst());
+		Assertions.assertEquals("1", previousNames.get(1));
+	}
+
+	@Test
+	void refreshFailureKeepsSnapshot() throws InterruptedException {
+		newScheduler((p, previous) -> {
+			if (loads.getAndIncrement() > 0) {
+				throw new IllegalStateException("Unavailable");
+			}
+			return load(p, previous);
+		});
+		final var snapshot = scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE);
+
+		// A third load starts once the second one has failed
+		waitFor(() -> loads.get() > 2);
+		Assertions.assertSame(snapshot, scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE));
+	}
+
+	@Test
+	void refreshNotFound() throws InterruptedException {
+		newScheduler((p, previous) -> {
+			if (loads.get() > 0) {
+				loads.incrementAndGet();
+				throw new ValidationJsonException(SonarPluginResource.PARAMETER_PROJECT, "sonar-project");
+			}
+			return load(p, previous);
+		});
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE);
+		waitFor(() -> scheduler.peek(ID) == null);
+
+		// No more refresh, and the next read reports the failure
+		Assertions.assertEquals(2, loads.get());
+		Assertions.assertThrows(ValidationJsonException.class, () -> scheduler.get(ID, SUBSCRIPTION, Duration.ofMillis(50), IDLE));
+	}
+
+	@Test
+	void getFailure() {
+		newScheduler((p, previous) -> {
+			loads.incrementAndGet();
+			throw new ValidationJsonException(SonarPluginResource.PARAMETER_PROJECT, "sonar-project");
+		});
+		Assertions.assertThrows(ValidationJsonException.class, () -> scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE));
+		Assertions.assertThrows(ValidationJsonException.class, () -> scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE));
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	void idle() throws InterruptedException {
+		newScheduler(this::load);
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), Duration.ZERO);
+
+		// The subscription is dropped by the scheduler, without other read
+		waitFor(() -> scheduler.peek(ID) == null);
+		Assertions.assertEquals("2", scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE).project().getName());
+	}
+
+	@Test
+	void refreshUpdatedParameters() throws InterruptedException {
+		final var passwords = new CopyOnWriteArrayList<String>();
+		newScheduler((p, previous) -> {
+			passwords.add(p.get(SonarPluginResource.PARAMETER_PASSWORD));
+			return load(p, previous);
+		});
+		final var parameters = new HashMap<>(SUBSCRIPTION);
+		parameters.put(SonarPluginResource.PARAMETER_PASSWORD, "old");
+		scheduler.get(ID, parameters, Duration.ofMinutes(5), IDLE);
+
+		// Same subscription with updated credentials, the snapshot is kept and refreshed with the new ones
+		parameters.put(SonarPluginResource.PARAMETER_PASSWORD, "new");
+		Assertions.assertEquals("1", scheduler.get(ID, parameters, Duration.ofMinutes(5), IDLE).project().getName());
+		Assertions.assertEquals(1, scheduler.refreshIf((p, s) -> "new".equals(p.get(SonarPluginResource.PARAMETER_PASSWORD))));
+		waitFor(() -> passwords.size() > 1);
+		Assertions.assertEquals(List.of("old", "new"), passwords);
+	}
+
+	@Test
+	void refreshEvicted() throws InterruptedException {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		newScheduler((p, previous) -> {
+			if (previous != null) {
+				started.countDown();
+				await(release);
+			}
+			return load(p, previous);
+		});
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		scheduler.refreshIf((p, s) -> true);
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// Evicted during the refresh, the refreshed snapshot is not stored back
+		scheduler.evictIf(p -> true);
+		final var snapshot = scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		Assertions.assertEquals("2", snapshot.project().getName());
+		release.countDown();
+		waitFor(() -> loads.get() > 2);
+		Thread.sleep(50);
+		Assertions.assertSame(snapshot, scheduler.peek(ID));
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	void refreshIf() throws InterruptedException {
+		newScheduler(this::load);
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		Assertions.assertEquals(0, scheduler.refreshIf((p, s) -> false));
+		Assertions.assertEquals(1, scheduler.refreshIf((p, s) -> "fr.company1:project1".equals(p.get(SonarPluginResource.PARAMETER_PROJECT))
+				&& "fr.company1:project1".equals(s.getKey())));
+		waitFor(() -> "2".equals(scheduler.peek(ID).project().getName()));
+
+		// Refreshed once, then at the normal cadence
+		Assertions.assertEquals(2, loads.get());
+		Assertions.assertEquals("2", scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE).project().getName());
+	}
+
+	@Test
+	void peek() {
+		newScheduler(this::load);
+		Assertions.assertNull(scheduler.peek(ID));
+		final var snapshot = scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		Assertions.assertSame(snapshot, scheduler.peek(ID));
+		Assertions.assertNull(scheduler.peek(ID + 1));
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	void evictIf() {
+		newScheduler(this::load);
+		scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE);
+		scheduler.evictIf(p -> "http://localhost:8120".equals(p.get(SonarPluginResource.PARAMETER_URL)));
+		Assertions.assertEquals("2", scheduler.get(ID, SUBSCRIPTION, Duration.ofMinutes(5), IDLE).project().getName());
+	}
+}
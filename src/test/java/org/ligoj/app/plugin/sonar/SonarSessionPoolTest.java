@@ -0,0 +1,104 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.curl.CurlProcessor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Test class of {@link SonarSessionPool}
+ */
+class SonarSessionPoolTest {
+
+	private static final Map<String, String> PARAMETERS = Map.of(SonarPluginResource.PARAMETER_URL, "http://localhost:8120",
+			SonarPluginResource.PARAMETER_USER, "junit", SonarPluginResource.PARAMETER_PASSWORD, "secret");
+
+	private CurlProcessor get(final SonarSessionPool pool, final Map<String, String> parameters, final Duration lifetime) {
+		return get(pool, "9.9.3", parameters, lifetime);
+	}
+
+	private CurlProcessor get(final SonarSessionPool pool, final String version, final Map<String, String> parameters, final Duration lifetime) {
+		return pool.execute(version, parameters, lifetime, p -> p);
+	}
+
+	@Test
+	void executeShared() {
+		try (var pool = new SonarSessionPool()) {
+			final var processor = get(pool, PARAMETERS, Duration.ofMinutes(1));
+			Assertions.assertSame(processor, get(pool, PARAMETERS, Duration.ofMinutes(1)));
+
+			// Other credentials
+			Assertions.assertNotSame(processor, get(pool, Map.of(SonarPluginResource.PARAMETER_URL, "http://localhost:8120",
+					SonarPluginResource.PARAMETER_USER, "other", SonarPluginResource.PARAMETER_PASSWORD, "secret"), Duration.ofMinutes(1)));
+		}
+	}
+
+	@Test
+	void executeConcurrent() {
+		try (var pool = new SonarSessionPool()) {
+			final var processor = get(pool, PARAMETERS, Duration.ofMinutes(1));
+			final var nested = pool.execute("9.9.3", PARAMETERS, Duration.ofMinutes(1), p -> {
+				// A processor is never used by two calls at the same time
+				Assertions.assertSame(processor, p);
+				final var other = get(pool, PARAMETERS, Duration.ofMinutes(1));
+				Assertions.assertNotSame(p, other);
+				return other;
+			});
+
+			// Both processors are reused
+			final var reused = pool.execute("9.9.3", PARAMETERS, Duration.ofMinutes(1), p -> List.of(p, get(pool, PARAMETERS, Duration.ofMinutes(1))));
+			Assertions.assertEquals(Set.of(processor, nested), Set.copyOf(reused));
+		}
+	}
+
+	@Test
+	void executeUnknownVersion() {
+		try (var pool = new SonarSessionPool()) {
+			// The version lookup and the next calls share the same processor
+			final var processor = get(pool, null, PARAMETERS, Duration.ofMinutes(1));
+			Assertions.assertSame(processor, get(pool, PARAMETERS, Duration.ofMinutes(1)));
+
+			// Unless the credentials are resolved differently once the version is known
+			final var token = Map.of(SonarPluginResource.PARAMETER_URL, "http://localhost:8120", SonarPluginResource.PARAMETER_USER, "junit",
+					SonarPluginResource.PARAMETER_PASSWORD, "sqa_" + "0".repeat(40));
+			final var tokenProcessor = get(pool, null, token, Duration.ofMinutes(1));
+			Assertions.assertNotSame(tokenProcessor, get(pool, token, Duration.ofMinutes(1)));
+		}
+	}
+
+	@Test
+	void executeExpired() {
+		try (var pool = new SonarSessionPool()) {
+			final var processor = get(pool, PARAMETERS, Duration.ZERO);
+			Assertions.assertNotSame(processor, get(pool, PARAMETERS, Duration.ZERO));
+		}
+	}
+
+	@Test
+	void evict() {
+		try (var pool = new SonarSessionPool()) {
+			final var processor = get(pool, PARAMETERS, Duration.ofMinutes(1));
+			pool.evict("http://localhost:8120");
+			Assertions.assertNotSame(processor, get(pool, PARAMETERS, Duration.ofMinutes(1)));
+		}
+	}
+
+	@Test
+	void evictInUse() {
+		try (var pool = new SonarSessionPool()) {
+			final var processor = pool.execute("9.9.3", PARAMETERS, Duration.ofMinutes(1), p -> {
+				// Retired while in use, closed once given back
+				pool.evict("http://localhost:8120");
+				return p;
+			});
+			Assertions.assertNotSame(processor, get(pool, PARAMETERS, Duration.ofMinutes(1)));
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.sonar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Test class of {@link SonarSingleFlight}
+ */
+class SonarSingleFlightTest {
+
+	private final SonarSingleFlight<String, String> flights = new SonarSingleFlight<>();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final AtomicReference<Thread> follower = new AtomicReference<>();
+
+	@Test
+	void execute() {
+		Assertions.assertEquals("1", flights.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+		Assertions.assertEquals("2", flights.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+		Assertions.assertEquals(0, flights.size());
+	}
+
+	@Test
+	void executeNull() {
+		Assertions.assertNull(flights.execute("key", () -> null));
+	}
+
+	@Test
+	void executeConcurrent() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final Future<String> leader = executor.submit(() -> flights.execute("key", () -> {
+				started.countDown();
+				await(release);
+				return String.valueOf(calls.incrementAndGet());
+			}));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			final var follower = executor.submit(() -> follow(() -> flights.execute("key", () -> String.valueOf(calls.incrementAndGet()))));
+			final var other = flights.execute("other", () -> "other");
+
+			// Let the follower join the call in flight
+			waitFollower();
+			release.countDown();
+			Assertions.assertEquals("1", leader.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("1", follower.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("other", other);
+		}
+		Assertions.assertEquals(1, calls.get());
+		Assertions.assertEquals(0, flights.size());
+	}
+
+	@Test
+	void executeFailure() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			final var leader = executor.submit(() -> flights.execute("key", () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("Unavailable");
+			}));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			final var follower = executor.submit(() -> follow(() -> flights.execute("key", () -> "unexpected")));
+			waitFollower();
+			release.countDown();
+			Assertions.assertInstanceOf(IllegalStateException.class,
+					Assertions.assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+			Assertions.assertInstanceOf(IllegalStateException.class,
+					Assertions.assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+		}
+
+		// The failure is not kept
+		Assertions.assertEquals("ok", flights.execute("key", () -> "ok"));
+	}
+
+	/**
+	 * Execute a call from a follower thread.
+	 */
+	private String follow(final Supplier<String> call) {
+		follower.set(Thread.currentThread());
+		return call.get();
+	}
+
+	/**
+	 * Wait for the follower to be parked on the call in flight.
+	 */
+	private void waitFollower() throws InterruptedException {
+		final var deadline = System.currentTimeMillis() + 5000;
+		while (follower.get() == null || follower.get().getState() != Thread.State.WAITING) {
+			Assertions.assertTrue(System.currentTimeMillis() < deadline, "Follower not waiting");
+			Thread.sleep(10);
+		}
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}